@@ -0,0 +1,123 @@
+package ch.climbd.newsfeed.controller;
+
+import ch.climbd.newsfeed.data.NewsEntry;
+import org.jsoup.Jsoup;
+import org.jsoup.safety.Safelist;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Derives the display forms of an entry (plain text, excerpts and paragraphized HTML) so they can be
+ * stored with the document instead of being computed on every render.
+ */
+@Component
+public class ContentRenderer {
+
+    public static final int EXCERPT_LENGTH = 100;
+    public static final int SHORT_EXCERPT_LENGTH = 25;
+
+    public void render(NewsEntry entry) {
+        var plainText = toPlainText(entry.getContent());
+        entry.setPlainText(plainText);
+        entry.setExcerpt(createExcerpt(plainText, EXCERPT_LENGTH));
+        entry.setExcerptShort(createExcerpt(plainText, SHORT_EXCERPT_LENGTH));
+
+        var summary = entry.getSummary();
+        var source = (summary != null && !summary.isBlank()) ? summary : entry.getContent();
+        entry.setRenderedHtml(formatFullContent(source));
+    }
+
+    public String toPlainText(String html) {
+        if (html == null || html.isBlank()) {
+            return "";
+        }
+        return Jsoup.parse(html).text().trim();
+    }
+
+    private String createExcerpt(String plainText, int length) {
+        if (plainText.isBlank()) {
+            return "";
+        }
+        return plainText.substring(0, Math.min(plainText.length(), length)) + "...";
+    }
+
+    public String formatFullContent(String str) {
+        if (str == null || str.isBlank()) {
+            return "";
+        }
+
+        str = str.replaceAll("(?i)</?div[^>]*>", "").trim();
+
+        return paragraphizeText(str);
+    }
+
+    private String paragraphizeText(String html) {
+        String normalized = html
+                .replaceAll("(?i)<br\\s*/?>", "\n")
+                .replace("&nbsp;", " ")
+                .replaceAll("\\r\\n?", "\n");
+
+        String plainText = Jsoup.parse(normalized).wholeText().trim();
+        if (plainText.isBlank()) {
+            return "";
+        }
+
+        String[] initialParagraphs = plainText.split("\\n\\s*\\n+");
+        List<String> readableParagraphs = new ArrayList<>();
+
+        for (String paragraph : initialParagraphs) {
+            String compact = paragraph.replaceAll("\\s*\\n\\s*", " ").trim();
+            if (compact.isBlank()) {
+                continue;
+            }
+            readableParagraphs.addAll(splitLongParagraph(compact));
+        }
+
+        if (readableParagraphs.isEmpty()) {
+            return "";
+        }
+
+        StringBuilder htmlBuilder = new StringBuilder();
+        for (String paragraph : readableParagraphs) {
+            htmlBuilder.append("<p>")
+                    .append(Jsoup.clean(paragraph, Safelist.none()))
+                    .append("</p>");
+        }
+        return htmlBuilder.toString();
+    }
+
+    private List<String> splitLongParagraph(String paragraph) {
+        List<String> parts = new ArrayList<>();
+        if (paragraph.length() <= 320) {
+            parts.add(paragraph);
+            return parts;
+        }
+
+        String[] sentences = paragraph.split("(?<=[.!?])\\s+(?=[A-Z0-9\"'\\(])");
+        if (sentences.length <= 1) {
+            parts.add(paragraph);
+            return parts;
+        }
+
+        StringBuilder currentPart = new StringBuilder();
+        int sentenceCount = 0;
+        for (String sentence : sentences) {
+            boolean exceedsLength = currentPart.length() > 0 && currentPart.length() + sentence.length() > 320;
+            boolean exceedsSentenceLimit = sentenceCount >= 3;
+            if (exceedsLength || exceedsSentenceLimit) {
+                parts.add(currentPart.toString().trim());
+                currentPart = new StringBuilder();
+                sentenceCount = 0;
+            }
+            currentPart.append(sentence).append(" ");
+            sentenceCount++;
+        }
+        if (currentPart.length() > 0) {
+            parts.add(currentPart.toString().trim());
+        }
+
+        return parts;
+    }
+}
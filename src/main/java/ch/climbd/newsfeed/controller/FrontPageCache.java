@@ -0,0 +1,107 @@
+package ch.climbd.newsfeed.controller;
+
+import ch.climbd.newsfeed.data.NewsEntry;
+import ch.climbd.newsfeed.data.NewsPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of the first page of each list view per language selection, shared by all
+ * sessions. Entries are dropped on relevant changes and reloaded once by the next reader.
+ * Every reader gets its own copies of the cached {@link NewsEntry} instances, since the views change
+ * them when details are loaded, votes are cast or summaries arrive.
+ */
+@Service
+public class FrontPageCache {
+
+    public static final int FIRST_PAGE_SIZE = 20;
+
+    public enum ListType {
+        LATEST, LIKED, POPULAR
+    }
+
+    private record Key(ListType listType, Set<String> languages) {
+    }
+
+    // The cached pages are list projections, summaries and rendered content are not part of them
+    private static final Set<String> LISTED_FIELDS = Set.of("deleted", "votes", "sources", "duplicateOf");
+
+    private final MongoController mongo;
+    private final MongoChangeStreamService mongoChangeStreamService;
+    private final Map<Key, CompletableFuture<NewsPage>> pages = new ConcurrentHashMap<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public FrontPageCache(MongoController mongo, MongoChangeStreamService mongoChangeStreamService, MeterRegistry meterRegistry) {
+        this.mongo = mongo;
+        this.mongoChangeStreamService = mongoChangeStreamService;
+        this.hits = Counter.builder("newsfeed.frontpage.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("newsfeed.frontpage.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        // Direct, so views reloading after an event never read a page the event made stale
+        mongoChangeStreamService.subscribeDirect(event -> {
+            var link = event.link();
+            if (link == null || link.startsWith("__")
+                    && !"__rss_batch__".equals(link) && !MongoChangeStreamService.RESYNC_LINK.equals(link)) {
+                return;
+            }
+            if (event.affects(LISTED_FIELDS)) {
+                invalidateAll();
+            }
+        });
+    }
+
+    public NewsPage firstPage(ListType listType, Set<String> languages, int limit) {
+        if (limit != FIRST_PAGE_SIZE) {
+            return load(listType, languages, limit);
+        }
+
+        var key = new Key(listType, Set.copyOf(languages));
+        var loading = new CompletableFuture<NewsPage>();
+        var cached = pages.putIfAbsent(key, loading);
+        if (cached != null) {
+            hits.increment();
+            return snapshot(cached.join());
+        }
+
+        misses.increment();
+        try {
+            loading.complete(load(listType, key.languages(), limit));
+        } catch (RuntimeException e) {
+            pages.remove(key, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+        return snapshot(loading.join());
+    }
+
+    private NewsPage snapshot(NewsPage page) {
+        return new NewsPage(page.entries().stream().map(NewsEntry::copy).toList(), page.nextCursor());
+    }
+
+    public void invalidateAll() {
+        pages.clear();
+    }
+
+    private NewsPage load(ListType listType, Set<String> languages, int limit) {
+        return switch (listType) {
+            case LATEST -> mongo.findOrderedByDatePage(languages, null, limit);
+            case LIKED -> mongo.findOrderedByVotesPage(languages, null, limit);
+            case POPULAR -> mongo.findOrderedByViewsPage(languages, null, limit);
+        };
+    }
+}
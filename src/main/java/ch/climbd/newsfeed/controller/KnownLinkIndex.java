@@ -0,0 +1,117 @@
+package ch.climbd.newsfeed.controller;
+
+import ch.climbd.newsfeed.data.NewsEntry;
+import com.mongodb.client.model.changestream.OperationType;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-memory index over all stored {@link NewsEntry} links. A negative answer is definite, so new
+ * links are recognised without a database round trip; only probable hits need to be confirmed.
+ */
+@Service
+public class KnownLinkIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KnownLinkIndex.class);
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    private static final long MIN_INITIAL_CAPACITY = 1 << 16;
+
+    private final MongoTemplate template;
+    private final MongoChangeStreamService mongoChangeStreamService;
+    private volatile ScalableBloomFilter filter = new ScalableBloomFilter(MIN_INITIAL_CAPACITY, FALSE_POSITIVE_RATE);
+    private volatile boolean warmedUp = false;
+    private boolean warmingUp = false;
+    private final List<String> addedDuringWarmUp = new ArrayList<>();
+
+    public KnownLinkIndex(MongoTemplate template, MongoChangeStreamService mongoChangeStreamService) {
+        this.template = template;
+        this.mongoChangeStreamService = mongoChangeStreamService;
+    }
+
+    @PostConstruct
+    void init() {
+        // Direct, a negative answer must stay definite, so no insert may be dropped or coalesced
+        mongoChangeStreamService.subscribeDirect(event -> {
+            var link = event.link();
+            if (MongoChangeStreamService.RESYNC_LINK.equals(link)) {
+                // The change stream could not be resumed, inserts by other writers may have been missed
+                rebuild();
+                return;
+            }
+            if (link != null && link.startsWith("http")
+                    && (event.operationType() == OperationType.INSERT || event.operationType() == OperationType.REPLACE)) {
+                add(link);
+            }
+        });
+        Thread.startVirtualThread(this::warmUp);
+    }
+
+    /**
+     * @return {@code false} if the link is definitely unknown, {@code true} if it is probably stored
+     */
+    public boolean mightContain(String link) {
+        return !warmedUp || filter.mightContain(link);
+    }
+
+    public synchronized void add(String link) {
+        filter.add(link);
+        if (warmingUp) {
+            addedDuringWarmUp.add(link);
+        }
+    }
+
+    /**
+     * Answers every lookup with "probably stored" until the index is warmed up again.
+     */
+    private synchronized void rebuild() {
+        warmedUp = false;
+        if (!warmingUp) {
+            Thread.startVirtualThread(this::warmUp);
+        }
+    }
+
+    private void warmUp() {
+        synchronized (this) {
+            if (warmingUp) {
+                return;
+            }
+            warmingUp = true;
+        }
+        try {
+            var startTime = System.currentTimeMillis();
+            var capacity = Math.max(MIN_INITIAL_CAPACITY, template.estimatedCount(NewsEntry.class) * 2);
+            var warmFilter = new ScalableBloomFilter(capacity, FALSE_POSITIVE_RATE);
+
+            var query = new Query();
+            query.fields().include("link");
+            try (var links = template.stream(query, NewsEntry.class)) {
+                links.map(NewsEntry::getLink).forEach(warmFilter::add);
+            }
+
+            synchronized (this) {
+                // Links saved while streaming may have been missed by the cursor
+                addedDuringWarmUp.forEach(warmFilter::add);
+                addedDuringWarmUp.clear();
+                filter = warmFilter;
+                warmedUp = true;
+                warmingUp = false;
+            }
+
+            LOG.info("Known link index warmed up with {} links ({} KB) in {}ms",
+                    warmFilter.size(), warmFilter.sizeInBytes() / 1024, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            LOG.warn("Could not warm up known link index, falling back to database lookups", e);
+            synchronized (this) {
+                warmingUp = false;
+                addedDuringWarmUp.clear();
+            }
+        }
+    }
+}
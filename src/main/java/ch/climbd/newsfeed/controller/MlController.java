@@ -1,8 +1,13 @@
 package ch.climbd.newsfeed.controller;
 
 import ch.climbd.newsfeed.data.NewsEntry;
+import ch.climbd.newsfeed.data.SummaryJob;
 import io.github.thoroldvix.api.*;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.commonmark.node.Node;
 import org.commonmark.parser.Parser;
 import org.commonmark.renderer.html.HtmlRenderer;
@@ -11,28 +16,103 @@ import org.jsoup.safety.Safelist;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Controller;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Controller
 public class MlController {
 
     private static final Logger LOG = LoggerFactory.getLogger(MlController.class);
+    private static final long JOB_POLL_INTERVAL_SECONDS = 30;
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int MAX_REDUCE_ROUNDS = 3;
+    private static final long PARTIAL_PUBLISH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final String SUMMARY_PROMPT = "As a professional summarizer, create a concise and comprehensive summary of the provided text, be it an article, post, conversation, or passage, while adhering to these guidelines:\n" +
+            "* Craft a summary that is detailed, thorough, in-depth, and complex, while maintaining clarity and conciseness.\n" +
+            "* Rely strictly on the provided text, without including external information.\n" +
+            "* Format the summary in paragraph form for easy understanding.";
+    private static final String CHUNK_PROMPT = "You summarize one part of a longer text. Keep every fact, name and number that matters, " +
+            "rely strictly on the provided text and answer with the summary only.";
+    private static final String REDUCE_PROMPT = "The following are summaries of consecutive parts of one text. Combine them into a single summary while adhering to these guidelines:\n" +
+            "* Craft a summary that is detailed, thorough, in-depth, and complex, while maintaining clarity and conciseness.\n" +
+            "* Rely strictly on the provided summaries, without including external information.\n" +
+            "* Format the summary in paragraph form for easy understanding.";
     private final YoutubeTranscriptApi youtubeTranscriptApi = TranscriptApiFactory.createWithClient(new DefaultYoutubeClientCopy());
 
     private final ChatClient chatClient;
     private final MongoController mongo;
-    private final BlockingQueue<NewsEntry> queue = new LinkedBlockingQueue<>();
+    private final ContentRenderer contentRenderer;
+    private final SummaryJobQueue jobs;
+    private final SummaryCache summaryCache;
+    private final Semaphore workers;
+    // Bounds the requests to the model, map stages of several articles share it
+    private final Semaphore modelCalls;
+    private final int chunkChars;
+    private final boolean streaming;
+    // Released when a job is queued, so idle workers do not wait for the next poll
+    private final Semaphore wakeUp = new Semaphore(0);
+    // Jobs processed by this instance, their leases are renewed until they are completed or failed
+    private final Set<SummaryJob> runningJobs = ConcurrentHashMap.newKeySet();
+    private final Timer queueLatency;
+    private final Timer summarizeDuration;
+    private final Timer singleStage;
+    private final Timer mapStage;
+    private final Timer reduceStage;
+    private final Timer timeToFirstToken;
+    private Thread dispatcher;
 
-    MlController(ChatClient.Builder chatClientBuilder, MongoController mongoController) {
+    MlController(ChatClient.Builder chatClientBuilder, MongoController mongoController, ContentRenderer contentRenderer,
+                 SummaryJobQueue jobs, SummaryCache summaryCache, MeterRegistry meterRegistry,
+                 @Value("${newsfeed.summarizer.concurrency:2}") int concurrency,
+                 @Value("${newsfeed.summarizer.chunk-tokens:2000}") int chunkTokens,
+                 @Value("${newsfeed.summarizer.streaming:true}") boolean streaming) {
         this.chatClient = chatClientBuilder.build();
         this.mongo = mongoController;
+        this.contentRenderer = contentRenderer;
+        this.jobs = jobs;
+        this.summaryCache = summaryCache;
+        this.workers = new Semaphore(Math.max(1, concurrency));
+        this.modelCalls = new Semaphore(Math.max(1, concurrency));
+        this.chunkChars = chunkTokens * CHARS_PER_TOKEN;
+        this.streaming = streaming;
+        Gauge.builder("newsfeed.summarizer.queue", jobs, SummaryJobQueue::pendingCount)
+                .register(meterRegistry);
+        this.queueLatency = Timer.builder("newsfeed.summarizer.latency")
+                .description("Time from queueing an article until its summary is stored")
+                .register(meterRegistry);
+        this.summarizeDuration = Timer.builder("newsfeed.summarizer.duration")
+                .register(meterRegistry);
+        this.singleStage = stageTimer(meterRegistry, "single");
+        this.mapStage = stageTimer(meterRegistry, "map");
+        this.reduceStage = stageTimer(meterRegistry, "reduce");
+        this.timeToFirstToken = Timer.builder("newsfeed.summarizer.ttft")
+                .description("Time until the model streams the first token of a summary")
+                .register(meterRegistry);
     }
 
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("newsfeed.summarizer.stage")
+                .tag("stage", stage)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Jobs are stored, but entries from before the job queue existed only show up as missing summaries.
+     * Queueing is idempotent, entries that already have a job are left alone.
+     */
     @PostConstruct
     public void fixQueueAfterRestart() {
         var todaysNews = mongo.findLast100PostsPostedInTheLast48h();
@@ -42,52 +122,127 @@ public class MlController {
                 .forEach(this::queueSummarize);
     }
 
+    @PostConstruct
+    public void startDispatcher() {
+        dispatcher = Thread.ofVirtual()
+                .name("summarizer-dispatcher")
+                .start(this::dispatchLoop);
+    }
+
+    @PreDestroy
+    public void stopDispatcher() {
+        dispatcher.interrupt();
+    }
+
     public void queueSummarize(NewsEntry news) {
+        if (!jobs.enqueue(news)) {
+            LOG.debug("Article already queued for summarization: {}", news.getTitle());
+            return;
+        }
         LOG.info("Queued article for summarization: {}", news.getTitle());
-        queue.offer(news);
+        wakeUp.release();
     }
 
-    @Scheduled(fixedDelay = 15, initialDelay = 30, timeUnit = TimeUnit.SECONDS)
-    public void summarize() {
-        NewsEntry news;
-        try {
-            news = queue.poll();
+    private void dispatchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                workers.acquire();
+                SummaryJob job;
+                try {
+                    job = jobs.claim();
+                } catch (Exception e) {
+                    LOG.warn("Could not claim a summarization job", e);
+                    job = null;
+                }
 
-            if (news == null) {
+                if (job == null) {
+                    workers.release();
+                    wakeUp.tryAcquire(JOB_POLL_INTERVAL_SECONDS, TimeUnit.SECONDS);
+                    wakeUp.drainPermits();
+                    continue;
+                }
+
+                var claimed = job;
+                Thread.startVirtualThread(() -> {
+                    try {
+                        process(claimed);
+                    } finally {
+                        workers.release();
+                    }
+                });
+            } catch (InterruptedException e) {
                 return;
             }
-            LOG.info("Processing summarization queue of length: {}", queue.size());
+        }
+    }
+
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void renewLeases() {
+        for (var job : runningJobs) {
+            try {
+                if (!jobs.renew(job)) {
+                    LOG.warn("Lost the lease of the summarization job for {}", job.getLink());
+                    runningJobs.remove(job);
+                }
+            } catch (Exception e) {
+                LOG.warn("Could not renew the lease of the summarization job for {}", job.getLink(), e);
+            }
+        }
+    }
 
+    private void process(SummaryJob job) {
+        runningJobs.add(job);
+        try {
+            var news = mongo.findByLink(job.getLink());
+            if (news == null || isSummarized(news)) {
+                // Deleted in the meantime or finished by an earlier attempt that could not complete the job
+                jobs.complete(job);
+                return;
+            }
+
+            var sample = Timer.start();
             processYoutubeTranscription(news);
 
             summarizeNormalText(news);
+            sample.stop(summarizeDuration);
+            jobs.complete(job);
+            queueLatency.record(Duration.between(job.getCreatedAt(), Instant.now()));
         } catch (Exception e) {
-            LOG.error("Error summarizing article", e);
+            LOG.error("Error summarizing article, attempt {}: {}", job.getAttempts(), job.getLink(), e);
+            jobs.fail(job, e);
+        } finally {
+            runningJobs.remove(job);
         }
     }
 
-    private void summarizeNormalText(NewsEntry news) {
-        if (!news.getLink().startsWith("https://www.youtube.com/watch?v=")) {
-            var content = chatClient.prompt()
-                    .system("As a professional summarizer, create a concise and comprehensive summary of the provided text, be it an article, post, conversation, or passage, while adhering to these guidelines:\n" +
-                            "* Craft a summary that is detailed, thorough, in-depth, and complex, while maintaining clarity and conciseness.\n" +
-                            "* Rely strictly on the provided text, without including external information.\n" +
-                            "* Format the summary in paragraph form for easy understanding.")
-                    .user("Summaries the following:\n" + news.getContent())
-                    .call()
-                    .content();
+    private static boolean isSummarized(NewsEntry news) {
+        if (news.getLink().startsWith("https://www.youtube.com/watch?v=")) {
+            return news.getContent() != null && !news.getContent().isBlank();
+        }
+        return news.getSummary() != null && !news.getSummary().isBlank();
+    }
 
-            content = handleO1Reasoning(content);
-            content = convertMarkdownToHtml(content);
+    private void summarizeNormalText(NewsEntry news) throws Exception {
+        if (!news.getLink().startsWith("https://www.youtube.com/watch?v=")) {
+            // The model only needs the text, markup would use up the context for nothing
+            var text = news.getPlainText() != null && !news.getPlainText().isBlank()
+                    ? news.getPlainText()
+                    : contentRenderer.toPlainText(news.getContent());
+            var summary = summarizeText(text, partialPublisher(news));
+            if (summary == null) {
+                return;
+            }
+            var content = convertMarkdownToHtml(summary);
 
             news.setSummary(content);
+            contentRenderer.render(news);
             LOG.debug("Summary: {}", content);
-            mongo.update(news);
+            mongo.saveSummary(news);
             LOG.info("Summarized the article: {}", news.getTitle());
         }
     }
 
-    private void processYoutubeTranscription(NewsEntry item) {
+    private void processYoutubeTranscription(NewsEntry item) throws Exception {
         if (item.getLink().startsWith("https://www.youtube.com/watch?v=")) {
 
             // Fix potential double summarization
@@ -102,25 +257,14 @@ public class MlController {
                 var content = TranscriptFormatters.textFormatter().format(fragments);
                 LOG.info("Transcript found for video: {}", item.getTitle());
 
-                // 32k token limit
-//                if (content.length() > 100000) {
-//                    content = content.substring(0, 100000);
-//                }
-
-                var summary = chatClient.prompt()
-                        .system("As a professional summarizer, create a concise and comprehensive summary of the provided text, be it an article, post, conversation, or passage, while adhering to these guidelines:\n" +
-                                "* Craft a summary that is detailed, thorough, in-depth, and complex, while maintaining clarity and conciseness.\n" +
-                                "* Rely strictly on the provided text, without including external information.\n" +
-                                "* Format the summary in paragraph form for easy understanding.")
-                        .user("Summaries the following:\n" + content)
-                        .call()
-                        .content();
-
-                summary = handleO1Reasoning(summary);
-                summary = convertMarkdownToHtml(summary);
-
-                item.setContent(summary);
-                mongo.update(item);
+                var summary = summarizeText(content, partialPublisher(item));
+                if (summary == null) {
+                    return;
+                }
+
+                item.setContent(convertMarkdownToHtml(summary));
+                contentRenderer.render(item);
+                mongo.saveSummary(item);
                 LOG.info("Summarized the article: {}", item.getTitle());
 
             } catch (TranscriptRetrievalException e) {
@@ -129,6 +273,178 @@ public class MlController {
         }
     }
 
+    /**
+     * Stores the summary generated so far in a field the change stream does not watch, cards show it when they
+     * are expanded. The summary itself is set once it is complete, so an aborted generation leaves readable
+     * output but is still retried.
+     */
+    private Consumer<String> partialPublisher(NewsEntry news) {
+        return partial -> mongo.savePartialHtml(news.getLink(),
+                contentRenderer.formatFullContent(convertMarkdownToHtml(partial)));
+    }
+
+    /**
+     * Returns the cached summary if the same text was summarized before, e.g. when an article is published
+     * in several feeds.
+     *
+     * @return the summary or {@code null} if the text is too short to be summarized
+     */
+    private String summarizeText(String text, Consumer<String> onPartial) throws Exception {
+        if (!SummaryCache.isSummarizable(text)) {
+            LOG.info("Not summarizing text of {} chars, it has too few words", text == null ? 0 : text.length());
+            return null;
+        }
+
+        var fingerprint = SummaryCache.fingerprint(text);
+        var cached = summaryCache.find(fingerprint);
+        if (cached != null) {
+            LOG.info("Using cached summary for text of {} chars", text.length());
+            return cached;
+        }
+
+        var summary = summarizeWithModel(text, onPartial);
+        summaryCache.store(fingerprint, summary);
+        return summary;
+    }
+
+    /**
+     * Summarizes texts that fit into one prompt directly. Longer texts are split into chunks that are
+     * summarized in parallel (map), the partial summaries are then combined into one summary (reduce).
+     */
+    private String summarizeWithModel(String text, Consumer<String> onPartial) throws Exception {
+        var chunks = TextChunker.chunk(text, chunkChars);
+        if (chunks.size() <= 1) {
+            var sample = Timer.start();
+            var summary = callModel(SUMMARY_PROMPT, "Summaries the following:\n" + text, onPartial);
+            sample.stop(singleStage);
+            return summary;
+        }
+
+        LOG.info("Summarizing text of {} chars in {} chunks", text.length(), chunks.size());
+        var sample = Timer.start();
+        var partials = mapChunks(chunks);
+        sample.stop(mapStage);
+
+        sample = Timer.start();
+        var summary = reduce(partials, onPartial);
+        sample.stop(reduceStage);
+        return summary;
+    }
+
+    private List<String> mapChunks(List<String> chunks) throws Exception {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = chunks.stream()
+                    .map(chunk -> executor.submit(() -> callModel(CHUNK_PROMPT, chunk, null)))
+                    .toList();
+
+            List<String> partials = new ArrayList<>();
+            for (var future : futures) {
+                try {
+                    partials.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            return partials;
+        }
+    }
+
+    private String reduce(List<String> partials, Consumer<String> onPartial) throws Exception {
+        var combined = String.join("\n\n", partials);
+        for (var round = 0; round < MAX_REDUCE_ROUNDS && combined.length() > chunkChars; round++) {
+            // Still too long for one prompt, condense the partial summaries once more
+            var chunks = TextChunker.chunk(combined, chunkChars);
+            if (chunks.size() >= partials.size()) {
+                break;
+            }
+            partials = mapChunks(chunks);
+            combined = String.join("\n\n", partials);
+        }
+        return callModel(REDUCE_PROMPT, combined, onPartial);
+    }
+
+    /**
+     * @param onPartial receives the visible output generated so far while streaming, {@code null} to wait for
+     *                  the complete response
+     */
+    private String callModel(String system, String user, Consumer<String> onPartial) throws InterruptedException {
+        modelCalls.acquire();
+        try {
+            if (streaming && onPartial != null) {
+                return streamModel(system, user, onPartial);
+            }
+
+            var content = chatClient.prompt()
+                    .system(system)
+                    .user(user)
+                    .call()
+                    .content();
+            return handleO1Reasoning(content);
+        } finally {
+            modelCalls.release();
+        }
+    }
+
+    private String streamModel(String system, String user, Consumer<String> onPartial) {
+        var start = System.nanoTime();
+        var lastPublished = start;
+        var output = new StringBuilder();
+        var firstToken = true;
+        try {
+            var tokens = chatClient.prompt()
+                    .system(system)
+                    .user(user)
+                    .stream()
+                    .content()
+                    .toIterable();
+            for (var token : tokens) {
+                if (firstToken) {
+                    timeToFirstToken.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    firstToken = false;
+                }
+                output.append(token);
+
+                var now = System.nanoTime();
+                if (now - lastPublished >= PARTIAL_PUBLISH_INTERVAL_NANOS) {
+                    publishPartial(output, onPartial);
+                    lastPublished = now;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Keep what was generated so far readable, the job is retried for the complete summary
+            publishPartial(output, onPartial);
+            throw e;
+        }
+        return handleO1Reasoning(output.toString());
+    }
+
+    private static void publishPartial(CharSequence output, Consumer<String> onPartial) {
+        var visible = stripReasoning(output.toString());
+        if (!visible.isBlank()) {
+            try {
+                onPartial.accept(visible);
+            } catch (Exception e) {
+                LOG.debug("Could not publish partial summary", e);
+            }
+        }
+    }
+
+    /**
+     * The visible part of a response that may still be generating its reasoning: nothing while inside a
+     * leading think block, the text after it once it is closed.
+     */
+    private static String stripReasoning(String output) {
+        var thinkEnd = output.indexOf("</think>");
+        if (thinkEnd >= 0) {
+            return output.substring(thinkEnd + 8);
+        }
+        var start = output.stripLeading();
+        if (start.startsWith("<think>") || "<think>".startsWith(start)) {
+            return "";
+        }
+        return output;
+    }
+
     private static String convertMarkdownToHtml(String markdown) {
         try {
             Parser parser = Parser.builder().build();
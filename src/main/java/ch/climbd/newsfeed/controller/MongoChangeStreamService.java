@@ -1,30 +1,45 @@
 package ch.climbd.newsfeed.controller;
 
+import ch.climbd.newsfeed.data.ChangeStreamState;
 import ch.climbd.newsfeed.data.NewsEntry;
 import com.mongodb.MongoCommandException;
 import com.mongodb.MongoException;
 import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import com.mongodb.client.model.changestream.FullDocument;
 import com.mongodb.client.model.changestream.OperationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
-import java.time.ZonedDateTime;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 @Service
@@ -33,9 +48,20 @@ public class MongoChangeStreamService {
     private static final Logger LOG = LoggerFactory.getLogger(MongoChangeStreamService.class);
     private static final long RETRY_DELAY_MS = 3000;
     private static final long FALLBACK_POLL_DELAY_MS = 5000;
+    private static final long RESUME_TOKEN_SAVE_INTERVAL_MS = 5000;
+    private static final int CHANGE_STREAM_FATAL_ERROR = 280;
+    private static final int CHANGE_STREAM_HISTORY_LOST = 286;
+    private static final int MAILBOX_CAPACITY = 64;
+    private static final int COALESCE_THRESHOLD = 20;
+    public static final String RESYNC_LINK = "__resync__";
 
     private final MongoTemplate mongoTemplate;
-    private final Set<Consumer<NewsChangeEvent>> listeners = new CopyOnWriteArraySet<>();
+    private final List<String> watchedFields;
+    private final List<String> excludedFields;
+    private final Set<Subscription> subscriptions = new CopyOnWriteArraySet<>();
+    private final List<Consumer<NewsChangeEvent>> directListeners = new CopyOnWriteArrayList<>();
+    private final Counter droppedEvents;
+    private final Counter coalescedEvents;
     private final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> {
         var thread = new Thread(runnable);
         thread.setName("mongodb-change-stream-watcher");
@@ -44,9 +70,24 @@ public class MongoChangeStreamService {
     });
 
     private volatile boolean running = true;
+    private volatile BsonDocument resumeToken;
+    private long resumeTokenSavedAt = 0;
 
-    public MongoChangeStreamService(MongoTemplate mongoTemplate) {
+    public MongoChangeStreamService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry,
+                                    @Value("${newsfeed.changestream.watched-fields:deleted,summary,votes,renderedHtml,sources,duplicateOf}") List<String> watchedFields,
+                                    @Value("${newsfeed.changestream.excluded-fields:content,plainText,summary,minHash,partialHtml}") List<String> excludedFields) {
         this.mongoTemplate = mongoTemplate;
+        this.watchedFields = watchedFields;
+        this.excludedFields = excludedFields;
+        Gauge.builder("newsfeed.changestream.subscribers", subscriptions, Set::size)
+                .register(meterRegistry);
+        Gauge.builder("newsfeed.changestream.mailbox.depth", subscriptions,
+                        subs -> subs.stream().mapToInt(subscription -> subscription.mailbox.size()).sum())
+                .register(meterRegistry);
+        this.droppedEvents = Counter.builder("newsfeed.changestream.dropped")
+                .register(meterRegistry);
+        this.coalescedEvents = Counter.builder("newsfeed.changestream.coalesced")
+                .register(meterRegistry);
     }
 
     @PostConstruct
@@ -58,11 +99,28 @@ public class MongoChangeStreamService {
     void shutdownWatcher() {
         running = false;
         executorService.shutdownNow();
+        saveResumeToken(mongoTemplate.getCollectionName(NewsEntry.class), true);
+        subscriptions.forEach(Subscription::close);
     }
 
+    /**
+     * Registers a listener that receives events on its own virtual thread, so a slow listener never holds up
+     * the change stream or other listeners. Bursts and events missed because the listener fell behind are
+     * collapsed into a single {@link #RESYNC_LINK} event, after which the listener should reload its state.
+     */
     public AutoCloseable subscribe(Consumer<NewsChangeEvent> listener) {
-        listeners.add(listener);
-        return () -> listeners.remove(listener);
+        var subscription = new Subscription(listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Registers a listener that is called on the publishing thread before any subscriber mailbox receives the
+     * event. It sees every event, without coalescing, so caches and indexes are up to date when subscribers
+     * react. Meant for short, non-blocking infrastructure listeners only.
+     */
+    public void subscribeDirect(Consumer<NewsChangeEvent> listener) {
+        directListeners.add(listener);
     }
 
     public void publishSyntheticChange(OperationType operationType, String link) {
@@ -70,19 +128,32 @@ public class MongoChangeStreamService {
     }
 
     private void watchLoop() {
+        var collectionName = mongoTemplate.getCollectionName(NewsEntry.class);
+        resumeToken = loadResumeToken(collectionName);
+
         while (running) {
             try {
-                var collectionName = mongoTemplate.getCollectionName(NewsEntry.class);
                 var collection = mongoTemplate.getCollection(collectionName);
+                var watch = collection.watch(pipeline()).fullDocument(FullDocument.UPDATE_LOOKUP);
+                if (resumeToken != null) {
+                    // Continue after the last delivered event, nothing that happened in between is lost
+                    watch = watch.startAfter(resumeToken);
+                }
 
-                try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = collection.watch()
-                        .fullDocument(FullDocument.UPDATE_LOOKUP)
-                        .cursor()) {
-
-                    LOG.info("MongoDB change stream active for collection: {}", collectionName);
-                    while (running && cursor.hasNext()) {
-                        var change = cursor.next();
-                        notifyListeners(toEvent(change));
+                try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = watch.cursor()) {
+                    LOG.info("MongoDB change stream active for collection: {} (resumed={})", collectionName, resumeToken != null);
+                    while (running) {
+                        var change = cursor.tryNext();
+                        if (change != null) {
+                            notifyListeners(toEvent(change));
+                        }
+                        // The post-batch token advances with filtered out changes too, so the stored position
+                        // keeps up with the oplog even when nothing is delivered for a long time
+                        var token = cursor.getResumeToken();
+                        if (token != null) {
+                            resumeToken = token;
+                        }
+                        saveResumeToken(collectionName, false);
                     }
                 }
             } catch (MongoCommandException e) {
@@ -91,6 +162,13 @@ public class MongoChangeStreamService {
                     runPollingFallback();
                     return;
                 }
+                if (e.getErrorCode() == CHANGE_STREAM_HISTORY_LOST || e.getErrorCode() == CHANGE_STREAM_FATAL_ERROR) {
+                    LOG.warn("MongoDB change stream cannot be resumed, starting from now. Listeners have to resync.", e);
+                    resumeToken = null;
+                    mongoTemplate.remove(Query.query(Criteria.where("_id").is(collectionName)), ChangeStreamState.class);
+                    notifyListeners(new NewsChangeEvent(OperationType.INVALIDATE, RESYNC_LINK));
+                    continue;
+                }
                 LOG.warn("MongoDB command error in change stream watcher. Retrying in {}ms", RETRY_DELAY_MS, e);
                 sleepBeforeRetry();
             } catch (MongoException e) {
@@ -103,6 +181,64 @@ public class MongoChangeStreamService {
         }
     }
 
+    /**
+     * Lets the server drop updates of fields the listeners do not care about (most notably the view counter)
+     * and strip the large text fields from the documents that are delivered.
+     */
+    private List<Bson> pipeline() {
+        var relevantOperations = Filters.in("operationType", List.of("insert", "replace", "delete"));
+        var filter = relevantOperations;
+        if (!watchedFields.isEmpty()) {
+            List<Bson> watchedChanges = new ArrayList<>();
+            watchedFields.forEach(field -> watchedChanges.add(Filters.exists("updateDescription.updatedFields." + field)));
+            watchedChanges.add(Filters.in("updateDescription.removedFields", watchedFields));
+            var relevantUpdates = Filters.and(
+                    Filters.eq("operationType", "update"),
+                    Filters.or(watchedChanges));
+            filter = Filters.or(relevantOperations, relevantUpdates);
+        }
+
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(filter));
+        if (!excludedFields.isEmpty()) {
+            pipeline.add(Aggregates.project(Projections.exclude(excludedFields.stream()
+                    .map(field -> "fullDocument." + field)
+                    .toList())));
+        }
+        return pipeline;
+    }
+
+    private BsonDocument loadResumeToken(String collectionName) {
+        try {
+            var state = mongoTemplate.findById(collectionName, ChangeStreamState.class);
+            if (state != null && state.getResumeToken() != null) {
+                return BsonDocument.parse(state.getResumeToken());
+            }
+        } catch (Exception e) {
+            LOG.warn("Could not load MongoDB change stream resume token, starting from now", e);
+        }
+        return null;
+    }
+
+    /**
+     * Stores the resume token at most every few seconds. After a restart events since the stored token are
+     * delivered again, which listeners handle like any other change.
+     */
+    private void saveResumeToken(String collectionName, boolean force) {
+        var token = resumeToken;
+        var now = System.currentTimeMillis();
+        if (token == null || (!force && now - resumeTokenSavedAt < RESUME_TOKEN_SAVE_INTERVAL_MS)) {
+            return;
+        }
+
+        try {
+            mongoTemplate.save(new ChangeStreamState(collectionName, token.toJson(), Instant.now()));
+            resumeTokenSavedAt = now;
+        } catch (Exception e) {
+            LOG.debug("Could not store MongoDB change stream resume token", e);
+        }
+    }
+
     private void sleepBeforeRetry() {
         try {
             Thread.sleep(RETRY_DELAY_MS);
@@ -111,8 +247,13 @@ public class MongoChangeStreamService {
         }
     }
 
+    /**
+     * Without a replica set new entries are found by their ingestion time. Only entries stored since the last
+     * poll are read, with the fields the lists need.
+     */
     private void runPollingFallback() {
-        Set<String> previousRecentLinks = new HashSet<>(fetchRecentLinks());
+        var marker = latestIngestedAt();
+        Set<String> seenAtMarker = new HashSet<>(linksIngestedAt(marker));
         LOG.info("MongoDB polling fallback active. Poll interval={}ms", FALLBACK_POLL_DELAY_MS);
 
         while (running) {
@@ -123,24 +264,44 @@ public class MongoChangeStreamService {
                 return;
             }
 
-            Set<String> currentRecentLinks = new HashSet<>(fetchRecentLinks());
-            if (!currentRecentLinks.equals(previousRecentLinks)) {
-                notifyListeners(new NewsChangeEvent(OperationType.INSERT, null));
-                previousRecentLinks = currentRecentLinks;
+            try {
+                var query = MongoController.includeListFields(new Query(Criteria.where("ingestedAt").gte(marker)));
+                query.fields().include("ingestedAt");
+                query.with(Sort.by(Sort.Direction.ASC, "ingestedAt"));
+
+                for (var entry : mongoTemplate.find(query, NewsEntry.class)) {
+                    // Entries with the same ingestion time as the marker may have been delivered by the last poll
+                    if (entry.getIngestedAt().equals(marker) && !seenAtMarker.add(entry.getLink())) {
+                        continue;
+                    }
+                    if (entry.getIngestedAt().isAfter(marker)) {
+                        marker = entry.getIngestedAt();
+                        seenAtMarker.clear();
+                        seenAtMarker.add(entry.getLink());
+                    }
+                    entry.setDetailsLoaded(false);
+                    notifyListeners(new NewsChangeEvent(OperationType.INSERT, entry.getLink(), entry));
+                }
+            } catch (Exception e) {
+                LOG.warn("MongoDB polling fallback failed, retrying with the next poll", e);
             }
         }
     }
 
-    private List<String> fetchRecentLinks() {
-        var query = new Query();
-        query.addCriteria(Criteria.where("publishedAt").gte(ZonedDateTime.now().minusDays(2).toInstant()));
-        query.with(Sort.by(Sort.Direction.DESC, "publishedAt"));
-        query.limit(100);
+    private Instant latestIngestedAt() {
+        var query = new Query(Criteria.where("ingestedAt").exists(true));
+        query.fields().include("ingestedAt");
+        query.with(Sort.by(Sort.Direction.DESC, "ingestedAt"));
+        var latest = mongoTemplate.findOne(query, NewsEntry.class);
+        return latest == null ? Instant.now() : latest.getIngestedAt();
+    }
 
+    private List<String> linksIngestedAt(Instant ingestedAt) {
+        var query = new Query(Criteria.where("ingestedAt").is(ingestedAt));
+        query.fields().include("link");
         return mongoTemplate.find(query, NewsEntry.class)
                 .stream()
                 .map(NewsEntry::getLink)
-                .filter(link -> link != null && !link.isBlank())
                 .toList();
     }
 
@@ -148,23 +309,127 @@ public class MongoChangeStreamService {
         String link = null;
         if (change.getDocumentKey() != null) {
             var id = change.getDocumentKey().get("_id");
-            link = id == null ? null : id.toString();
+            if (id != null) {
+                link = id.isString() ? id.asString().getValue() : id.toString();
+            }
+        }
+
+        // Inserts carry the document, updates and replaces get the current version through the lookup,
+        // both without the fields excluded by the pipeline
+        NewsEntry entry = null;
+        if (change.getFullDocument() != null) {
+            entry = mongoTemplate.getConverter().read(NewsEntry.class, change.getFullDocument());
+            entry.setDetailsLoaded(excludedFields.isEmpty());
+        }
+
+        Set<String> updatedFields = new HashSet<>();
+        var updateDescription = change.getUpdateDescription();
+        if (updateDescription != null) {
+            if (updateDescription.getUpdatedFields() != null) {
+                updateDescription.getUpdatedFields().keySet().forEach(field -> updatedFields.add(topLevelField(field)));
+            }
+            if (updateDescription.getRemovedFields() != null) {
+                updateDescription.getRemovedFields().forEach(field -> updatedFields.add(topLevelField(field)));
+            }
         }
 
         OperationType operationType = change.getOperationType();
-        return new NewsChangeEvent(operationType, link);
+        return new NewsChangeEvent(operationType, link, entry, Set.copyOf(updatedFields));
+    }
+
+    private static String topLevelField(String path) {
+        var dot = path.indexOf('.');
+        return dot < 0 ? path : path.substring(0, dot);
     }
 
     private void notifyListeners(NewsChangeEvent event) {
-        for (var listener : listeners) {
+        for (var listener : directListeners) {
+            try {
+                listener.accept(event);
+            } catch (Exception e) {
+                LOG.warn("Error delivering change stream event to a direct listener", e);
+            }
+        }
+        for (var subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    private final class Subscription implements AutoCloseable {
+
+        private final Consumer<NewsChangeEvent> listener;
+        private final BlockingQueue<NewsChangeEvent> mailbox = new ArrayBlockingQueue<>(MAILBOX_CAPACITY);
+        private final AtomicBoolean overflowed = new AtomicBoolean(false);
+        private final Thread dispatcher;
+
+        private Subscription(Consumer<NewsChangeEvent> listener) {
+            this.listener = listener;
+            this.dispatcher = Thread.ofVirtual()
+                    .name("mongodb-change-listener")
+                    .start(this::dispatchLoop);
+        }
+
+        private void offer(NewsChangeEvent event) {
+            if (!mailbox.offer(event)) {
+                overflowed.set(true);
+                droppedEvents.increment();
+            }
+        }
+
+        private void dispatchLoop() {
+            List<NewsChangeEvent> batch = new ArrayList<>();
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    batch.add(mailbox.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                mailbox.drainTo(batch);
+
+                if (overflowed.getAndSet(false) || batch.size() > COALESCE_THRESHOLD) {
+                    coalescedEvents.increment(batch.size());
+                    deliver(new NewsChangeEvent(OperationType.INVALIDATE, RESYNC_LINK));
+                } else {
+                    batch.forEach(this::deliver);
+                }
+                batch.clear();
+            }
+        }
+
+        private void deliver(NewsChangeEvent event) {
             try {
                 listener.accept(event);
             } catch (Exception e) {
                 LOG.debug("Error delivering change stream event to a listener", e);
             }
         }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+            dispatcher.interrupt();
+        }
     }
 
-    public record NewsChangeEvent(OperationType operationType, String link) {
+    /**
+     * A change of a single news entry, or a synthetic event. {@code entry} holds the current version of
+     * the document if it still exists and was delivered by the change stream, otherwise it is {@code null}.
+     * {@code updatedFields} names the top-level fields set or removed by an update.
+     */
+    public record NewsChangeEvent(OperationType operationType, String link, NewsEntry entry, Set<String> updatedFields) {
+        public NewsChangeEvent(OperationType operationType, String link, NewsEntry entry) {
+            this(operationType, link, entry, Set.of());
+        }
+
+        public NewsChangeEvent(OperationType operationType, String link) {
+            this(operationType, link, null);
+        }
+
+        /**
+         * @return {@code true} unless this is an update that changed none of the given fields
+         */
+        public boolean affects(Set<String> fields) {
+            return operationType != OperationType.UPDATE || updatedFields.stream().anyMatch(fields::contains);
+        }
     }
 }
@@ -1,217 +1,459 @@
 package ch.climbd.newsfeed.controller;
 
+import ch.climbd.newsfeed.data.FeedState;
 import ch.climbd.newsfeed.data.NewsEntry;
+import ch.climbd.newsfeed.data.NewsPage;
+import ch.climbd.newsfeed.data.PageCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
 import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.TextCriteria;
+import org.springframework.data.mongodb.core.query.TextQuery;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
-import java.time.LocalDateTime;
+import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 public class MongoController {
 
     private static final Logger LOG = LoggerFactory.getLogger(MongoController.class);
-    private final Set<String> cache = ConcurrentHashMap.newKeySet();
-    private LocalDateTime cacheTimestamp = LocalDateTime.now();
 
     @Autowired
     private MongoTemplate template;
 
-    public boolean exists(String link) {
-        if (link != null && link.startsWith("http")) {
-            var now = System.currentTimeMillis();
-            if (Duration.between(cacheTimestamp, LocalDateTime.now()).toMinutes() > 15) {
-                cache.clear();
-                cacheTimestamp = LocalDateTime.now();
-            }
+    @Autowired
+    private KnownLinkIndex knownLinks;
 
-            if (cache.contains(link)) {
-                return true;
-            }
+    @Autowired
+    private SummaryJobQueue summaryJobs;
 
-            Query query = new Query();
-            query.addCriteria(Criteria.where("link").in(link));
-            var result = template.exists(query, NewsEntry.class);
+    public Set<String> findExistingLinks(Collection<String> links) {
+        List<String> probablyKnown = links.stream()
+                .filter(knownLinks::mightContain)
+                .toList();
 
-            if (result) {
-                cache.add(link);
-            }
-            return result;
+        if (probablyKnown.isEmpty()) {
+            return Set.of();
         }
 
-        LOG.warn("Not a link: {}", link);
-        return false;
-    }
+        Query query = new Query();
+        query.addCriteria(Criteria.where("link").in(probablyKnown));
+        query.fields().include("link");
 
-    public boolean exists(NewsEntry newsEntry) {
-        return exists(newsEntry.getLink());
+        return template.find(query, NewsEntry.class)
+                .stream()
+                .map(NewsEntry::getLink)
+                .collect(Collectors.toSet());
     }
 
     public List<NewsEntry> findAllOrderedByDate(Set<String> language) {
         return template.find(baseDateQuery(language), NewsEntry.class);
     }
 
-    public List<NewsEntry> findOrderedByDatePage(Set<String> language, int offset, int limit) {
-        if (limit <= 0) {
-            return List.of();
-        }
-
-        Query query = baseDateQuery(language);
-        query.skip(Math.max(0, offset));
-        query.limit(limit);
-        return template.find(query, NewsEntry.class);
+    public NewsPage findOrderedByDatePage(Set<String> language, String cursor, int limit) {
+        return findPage(baseDateQuery(language), null, cursor, limit);
     }
 
     public List<NewsEntry> findAllOrderedByVotes(Set<String> language) {
         return template.find(baseVotesQuery(language), NewsEntry.class);
     }
 
-    public List<NewsEntry> findOrderedByVotesPage(Set<String> language, int offset, int limit) {
-        if (limit <= 0) {
+    public NewsPage findOrderedByVotesPage(Set<String> language, String cursor, int limit) {
+        return findPage(baseVotesQuery(language), "votes", cursor, limit);
+    }
+
+    public List<NewsEntry> findAllOrderedByViews(Set<String> language) {
+        return template.find(baseViewsQuery(language), NewsEntry.class);
+    }
+
+    public NewsPage findOrderedByViewsPage(Set<String> language, String cursor, int limit) {
+        return findPage(baseViewsQuery(language), "views", cursor, limit);
+    }
+
+    public List<NewsEntry> findAllFilterdBySite(String host) {
+        if (host == null || host.isBlank()) {
             return List.of();
         }
+        return findSlim(siteQuery(host));
+    }
 
-        Query query = baseVotesQuery(language);
-        query.skip(Math.max(0, offset));
-        query.limit(limit);
-        return template.find(query, NewsEntry.class);
+    public List<NewsEntry> findLast100PostsPostedInTheLast48h() {
+        return template.find(last48hQuery(), NewsEntry.class);
     }
 
-    public List<NewsEntry> findAllOrderedByViews(Set<String> language) {
-        return template.find(baseViewsQuery(language), NewsEntry.class);
+    public void save(NewsEntry newsEntry) {
+        if (newsEntry.getIngestedAt() == null) {
+            newsEntry.setIngestedAt(Instant.now());
+        }
+        template.save(newsEntry);
+        knownLinks.add(newsEntry.getLink());
     }
 
-    public List<NewsEntry> findOrderedByViewsPage(Set<String> language, int offset, int limit) {
-        if (limit <= 0) {
+    public List<NewsEntry> insertAll(List<NewsEntry> newsEntries) {
+        if (newsEntries.isEmpty()) {
             return List.of();
         }
 
-        Query query = baseViewsQuery(language);
-        query.skip(Math.max(0, offset));
+        var ingestedAt = Instant.now();
+        newsEntries.forEach(newsEntry -> newsEntry.setIngestedAt(ingestedAt));
+        var bulk = template.bulkOps(BulkOperations.BulkMode.UNORDERED, NewsEntry.class);
+        bulk.insert(newsEntries);
+        List<NewsEntry> inserted;
+        try {
+            bulk.execute();
+            inserted = newsEntries;
+        } catch (BulkOperationException e) {
+            // Unordered: everything except the rejected documents (usually duplicate keys) was written
+            Set<Integer> failed = e.getErrors().stream()
+                    .map(error -> error.getIndex())
+                    .collect(Collectors.toSet());
+            LOG.warn("Bulk insert rejected {} of {} entries", failed.size(), newsEntries.size());
+            inserted = IntStream.range(0, newsEntries.size())
+                    .filter(index -> !failed.contains(index))
+                    .mapToObj(newsEntries::get)
+                    .toList();
+        }
+
+        inserted.forEach(entry -> knownLinks.add(entry.getLink()));
+        return inserted;
+    }
+
+    public NewsEntry findByLink(String link) {
+        return template.findById(link, NewsEntry.class);
+    }
+
+    public NewsEntry loadDetails(NewsEntry newsEntry) {
+        if (newsEntry.isDetailsLoaded()) {
+            return newsEntry;
+        }
+
+        Query query = new Query(Criteria.where("link").is(newsEntry.getLink()));
+        query.fields().include("content", "summary", "renderedHtml", "partialHtml");
+        var details = template.findOne(query, NewsEntry.class);
+        if (details != null) {
+            newsEntry.setContent(details.getContent());
+            newsEntry.setSummary(details.getSummary());
+            newsEntry.setRenderedHtml(details.getRenderedHtml());
+            newsEntry.setPartialHtml(details.getPartialHtml());
+        }
+        newsEntry.setDetailsLoaded(true);
+        return newsEntry;
+    }
+
+    /**
+     * Walks the collection in link order, so every batch continues on the {@code _id} index where the last
+     * one stopped instead of scanning the rendered entries again.
+     *
+     * @param afterLink the last link of the previous batch or {@code null} to start at the beginning
+     */
+    public List<NewsEntry> findUnrendered(String afterLink, int limit) {
+        var criteria = Criteria.where("renderedHtml").exists(false);
+        if (afterLink != null) {
+            criteria = criteria.and("link").gt(afterLink);
+        }
+        Query query = new Query(criteria);
+        query.fields().include("content", "summary");
+        query.with(Sort.by(Sort.Direction.ASC, "link"));
         query.limit(limit);
         return template.find(query, NewsEntry.class);
     }
 
-    public List<NewsEntry> findAllFilterdBySite(String host) {
-        if (host == null || host.isBlank()) {
-            return List.of();
+    public void saveRendering(List<NewsEntry> newsEntries) {
+        if (newsEntries.isEmpty()) {
+            return;
         }
-        Query query = new Query();
-        query.addCriteria(Criteria.where("link").regex("^" + Pattern.quote(host)));
-        query.with(Sort.by(Sort.Direction.DESC, "publishedAt"));
-        query.limit(100);
 
-        return template.find(query, NewsEntry.class);
+        var bulk = template.bulkOps(BulkOperations.BulkMode.UNORDERED, NewsEntry.class);
+        newsEntries.forEach(entry -> bulk.updateOne(
+                new Query(Criteria.where("link").is(entry.getLink())),
+                new Update()
+                        .set("plainText", entry.getPlainText())
+                        .set("excerpt", entry.getExcerpt())
+                        .set("excerptShort", entry.getExcerptShort())
+                        .set("renderedHtml", entry.getRenderedHtml())));
+        bulk.execute();
     }
 
-    public List<NewsEntry> findLast100PostsPostedInTheLast48h() {
-        Query query = new Query();
-        query.addCriteria(Criteria.where("publishedAt").gte(ZonedDateTime.now().minusDays(2).toInstant()));
-        query.with(Sort.by(Sort.Direction.DESC, "publishedAt"));
-        query.limit(100);
+    public void markDeleted(NewsEntry newsEntry) {
+        template.updateFirst(
+                new Query(Criteria.where("link").is(newsEntry.getLink())),
+                new Update().set("deleted", true),
+                NewsEntry.class);
+    }
 
-        return template.find(query, NewsEntry.class);
+    /**
+     * Makes the earliest remaining duplicate of a deleted representative the representative of its story,
+     * so the story stays listed.
+     *
+     * @return the new representative with its signature or {@code null} if the story had no other entries
+     */
+    public NewsEntry promoteDuplicate(String link) {
+        var duplicates = Criteria.where("duplicateOf").is(link).and("deleted").is(false);
+        var remaining = template.count(new Query(duplicates), NewsEntry.class);
+        if (remaining == 0) {
+            return null;
+        }
+
+        Query query = new Query(duplicates);
+        query.with(Sort.by(Sort.Direction.ASC, "ingestedAt"));
+        query.fields().include("publishedAt", "minHash");
+        var successor = template.findAndModify(query,
+                new Update().unset("duplicateOf").set("sources", (int) remaining),
+                FindAndModifyOptions.options().returnNew(true),
+                NewsEntry.class);
+        if (successor == null) {
+            return null;
+        }
+
+        template.updateMulti(
+                new Query(Criteria.where("duplicateOf").is(link)),
+                new Update().set("duplicateOf", successor.getLink()),
+                NewsEntry.class);
+        return successor;
     }
 
-    public void save(NewsEntry newsEntry) {
-        template.save(newsEntry);
+    public void savePartialHtml(String link, String partialHtml) {
+        template.updateFirst(
+                new Query(Criteria.where("link").is(link)),
+                new Update().set("partialHtml", partialHtml),
+                NewsEntry.class);
     }
 
-    public void update(NewsEntry newsEntry) {
-        template.save(newsEntry);
+    /**
+     * Counts one more feed reporting the story of the given representative entry.
+     */
+    public void increaseSources(String link) {
+        template.updateFirst(
+                new Query(Criteria.where("link").is(link)),
+                new Update().inc("sources", 1),
+                NewsEntry.class);
+    }
+
+    /**
+     * Stores a finished summary and its display forms only, so counters changed while it was generated are kept.
+     */
+    public void saveSummary(NewsEntry newsEntry) {
+        template.updateFirst(
+                new Query(Criteria.where("link").is(newsEntry.getLink())),
+                new Update()
+                        .set("summary", newsEntry.getSummary())
+                        .set("content", newsEntry.getContent())
+                        .set("plainText", newsEntry.getPlainText())
+                        .set("excerpt", newsEntry.getExcerpt())
+                        .set("excerptShort", newsEntry.getExcerptShort())
+                        .set("renderedHtml", newsEntry.getRenderedHtml())
+                        .unset("partialHtml"),
+                NewsEntry.class);
     }
 
     public void delete(NewsEntry newsEntry) {
         template.remove(newsEntry);
     }
 
-    public void increaseVote(NewsEntry newsEntry) {
-        var result = template.findById(newsEntry.getLink(), NewsEntry.class);
-        if (result != null) {
-            result.setVotes(result.getVotes() + 1);
-            update(result);
+    public FeedState findFeedState(String url) {
+        var state = template.findById(url, FeedState.class);
+        return state != null ? state : new FeedState(url);
+    }
+
+    public void saveFeedState(FeedState feedState) {
+        template.save(feedState);
+    }
+
+    public int increaseVote(NewsEntry newsEntry) {
+        return countVote(newsEntry, 1);
+    }
+
+    public int decreaseVote(NewsEntry newsEntry) {
+        return countVote(newsEntry, -1);
+    }
+
+    private int countVote(NewsEntry newsEntry, int delta) {
+        var votes = incrementCounter(newsEntry.getLink(), "votes", delta);
+        // Voted entries are summarized earlier
+        summaryJobs.updatePriority(newsEntry.getLink(), newsEntry.getPublishedAt(), votes);
+        return votes;
+    }
+
+    /**
+     * @return the increments that were rejected, all others were written
+     */
+    public Map<String, Long> increaseViews(Map<String, Long> viewsByLink) {
+        if (viewsByLink.isEmpty()) {
+            return Map.of();
+        }
+
+        var increments = List.copyOf(viewsByLink.entrySet());
+        var bulk = template.bulkOps(BulkOperations.BulkMode.UNORDERED, NewsEntry.class);
+        increments.forEach(increment -> bulk.updateOne(
+                new Query(Criteria.where("link").is(increment.getKey())),
+                new Update().inc("views", increment.getValue())));
+        try {
+            bulk.execute();
+            return Map.of();
+        } catch (BulkOperationException e) {
+            // Unordered: only the updates at the reported indexes failed
+            return e.getErrors().stream()
+                    .map(error -> increments.get(error.getIndex()))
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
         }
     }
 
-    public void decreaseVote(NewsEntry newsEntry) {
-        var result = template.findById(newsEntry.getLink(), NewsEntry.class);
-        if (result != null) {
-            result.setVotes(result.getVotes() - 1);
-            update(result);
+    private int incrementCounter(String link, String field, int delta) {
+        Query query = new Query(Criteria.where("link").is(link));
+        query.fields().include(field);
+
+        var result = template.findAndModify(
+                query,
+                new Update().inc(field, delta),
+                FindAndModifyOptions.options().returnNew(true),
+                NewsEntry.class);
+
+        if (result == null) {
+            return 0;
         }
+        var value = "votes".equals(field) ? result.getVotes() : result.getViews();
+        return value != null ? value : 0;
     }
 
-    public void increaseViews(String url) {
-        var result = template.findById(url, NewsEntry.class);
-        if (result != null) {
-            if (result.getViews() != null) {
-                result.setViews(result.getViews() + 1);
-                update(result);
-                LOG.info("{} views for: {}", result.getViews(), url);
-            } else {
-                result.setViews(1);
-                update(result);
-            }
+    public List<NewsEntry> searchEntries(String searchString, Set<String> language, int offset, int limit) {
+        if (searchString == null || searchString.isBlank() || limit <= 0) {
+            return List.of();
         }
+
+        Query query = searchQuery(searchString, language);
+        query.skip(Math.max(0, offset));
+        query.limit(limit);
+        return findSlim(query);
     }
 
-    public List<NewsEntry> searchEntries(String searchString, Set<String> language) {
-        var startTime = LocalDateTime.now();
-        var splitted = searchString.strip().split(" ");
+    private Query searchQuery(String searchString, Set<String> language) {
+        // Stem the search terms in German only if the reader exclusively reads German news
+        var criteria = Set.of("de").equals(language)
+                ? TextCriteria.forLanguage("german").matching(searchString.strip())
+                : TextCriteria.forDefaultLanguage().matching(searchString.strip());
 
-        StringBuilder searchQuery = new StringBuilder();
-        Arrays.stream(splitted)
-                .filter(token -> !token.isBlank())
-                .map(Pattern::quote)
-                .map(token -> "(?=.*" + token + ")")
-                .forEach(searchQuery::append);
+        Query query = TextQuery.queryText(criteria).sortByScore();
+        query.addCriteria(Criteria.where("language").in(language));
+        return query;
+    }
 
-        Pattern pattern = Pattern.compile(searchQuery.toString(), Pattern.CASE_INSENSITIVE);
-        Criteria regex = Criteria.where("title").regex(pattern);
+    /**
+     * Restricts the query to the fields the news lists show.
+     */
+    public static Query includeListFields(Query query) {
+        query.fields()
+                .include("title", "publishedAt", "votes", "views", "language", "deleted", "excerpt", "excerptShort", "sources", "duplicateOf");
+        return query;
+    }
 
-        int currentPage = 0;
-        List<NewsEntry> newsEntries = new ArrayList<>();
+    /**
+     * Loads list entries with their precomputed excerpts but without content, summary or rendered HTML.
+     * Those are fetched with {@link #loadDetails(NewsEntry)} when a card is expanded.
+     */
+    private List<NewsEntry> findSlim(Query query) {
+        includeListFields(query);
 
-        while (newsEntries.isEmpty()
-                || newsEntries.size() == currentPage * 10) {
+        var entries = template.find(query, NewsEntry.class);
+        entries.forEach(entry -> entry.setDetailsLoaded(false));
+        return entries;
+    }
 
-            if (Duration.between(startTime, LocalDateTime.now()).toSeconds() > 1) {
-                break;
-            }
+    private NewsPage findPage(Query query, String counterField, String cursorToken, int limit) {
+        if (limit <= 0) {
+            return NewsPage.empty();
+        }
 
-            var paging = PageRequest.of(currentPage, 10);
-            var query = new Query()
-                    .addCriteria(regex)
-                    .addCriteria(Criteria.where("language").in(language))
-                    .with(Sort.by(Sort.Direction.DESC, "publishedAt"))
-                    .with(paging);
+        var cursor = PageCursor.decode(cursorToken);
+        if (cursor != null) {
+            query.addCriteria(seekAfter(cursor, counterField));
+        }
+        // Fetch one extra entry to learn whether another page exists
+        query.limit(limit + 1);
 
-            newsEntries.addAll(template.find(query, NewsEntry.class));
-            currentPage++;
+        var entries = findSlim(query);
+        if (entries.size() <= limit) {
+            return new NewsPage(entries, null);
         }
 
-        return newsEntries;
+        entries = entries.subList(0, limit);
+        var last = entries.getLast();
+        Integer counter = counterField == null ? null
+                : "votes".equals(counterField) ? last.getVotes() : last.getViews();
+        var nextCursor = new PageCursor(last.getPublishedAt(), counter, last.getLink());
+        return new NewsPage(entries, nextCursor.encode());
+    }
+
+    /**
+     * Matches everything sorted after the cursor for a descending sort on
+     * {@code publishedAt}, the optional counter and {@code link}.
+     */
+    private Criteria seekAfter(PageCursor cursor, String counterField) {
+        var publishedAt = cursor.publishedAt();
+        if (counterField == null || cursor.counter() == null) {
+            return new Criteria().orOperator(
+                    Criteria.where("publishedAt").lt(publishedAt),
+                    Criteria.where("publishedAt").is(publishedAt).and("link").lt(cursor.link()));
+        }
+
+        return new Criteria().orOperator(
+                Criteria.where("publishedAt").lt(publishedAt),
+                Criteria.where("publishedAt").is(publishedAt).and(counterField).lt(cursor.counter()),
+                Criteria.where("publishedAt").is(publishedAt).and(counterField).is(cursor.counter())
+                        .and("link").lt(cursor.link()));
+    }
+
+    /**
+     * Representative query shapes of the list queries, used to verify their query plans.
+     */
+    Map<String, Query> queryShapes() {
+        var languages = Set.of("en", "de");
+        return Map.of(
+                "latest", baseDateQuery(languages).limit(21),
+                "liked", baseVotesQuery(languages).limit(21),
+                "popular", baseViewsQuery(languages).limit(21),
+                "site", siteQuery("https://www.cyclingnews.com"),
+                "last48h", last48hQuery(),
+                "search", searchQuery("tour de france", languages).limit(20));
+    }
+
+    private Query siteQuery(String host) {
+        Query query = new Query();
+        query.addCriteria(Criteria.where("link").regex("^" + Pattern.quote(host)));
+        query.with(Sort.by(Sort.Direction.DESC, "publishedAt"));
+        query.limit(100);
+        return query;
+    }
+
+    private Query last48hQuery() {
+        Query query = new Query();
+        query.addCriteria(Criteria.where("publishedAt").gte(ZonedDateTime.now().minusDays(2).toInstant()));
+        query.with(Sort.by(Sort.Direction.DESC, "publishedAt"));
+        query.limit(100);
+        return query;
     }
 
     private Query baseDateQuery(Set<String> language) {
         Query query = new Query();
         query.addCriteria(Criteria.where("publishedAt").gte(ZonedDateTime.now().minusDays(2).toInstant()));
         query.addCriteria(Criteria.where("language").in(language));
-        query.with(Sort.by(Sort.Direction.DESC, "publishedAt"));
+        query.addCriteria(Criteria.where("duplicateOf").is(null));
+        query.with(Sort.by(Sort.Direction.DESC, "publishedAt", "link"));
         return query;
     }
 
@@ -219,9 +461,11 @@ public class MongoController {
         Query query = new Query();
         query.addCriteria(Criteria.where("language").in(language));
         query.addCriteria(Criteria.where("votes").gte(1));
+        query.addCriteria(Criteria.where("duplicateOf").is(null));
         query.with(Sort.by(
                 Sort.Order.desc("publishedAt"),
-                Sort.Order.desc("votes")
+                Sort.Order.desc("votes"),
+                Sort.Order.desc("link")
         ));
         return query;
     }
@@ -230,9 +474,11 @@ public class MongoController {
         Query query = new Query();
         query.addCriteria(Criteria.where("language").in(language));
         query.addCriteria(Criteria.where("views").gte(1));
+        query.addCriteria(Criteria.where("duplicateOf").is(null));
         query.with(Sort.by(
                 Sort.Order.desc("publishedAt"),
-                Sort.Order.desc("views")
+                Sort.Order.desc("views"),
+                Sort.Order.desc("link")
         ));
         return query;
     }
@@ -0,0 +1,109 @@
+package ch.climbd.newsfeed.controller;
+
+import ch.climbd.newsfeed.data.NewsEntry;
+import ch.climbd.newsfeed.data.SummaryCacheEntry;
+import ch.climbd.newsfeed.data.SummaryJob;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.QueryMapper;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates the indexes declared on the documents at startup and checks that every list query
+ * shape is answered from an index.
+ */
+@Service
+public class MongoIndexService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MongoIndexService.class);
+
+    private final MongoTemplate template;
+    private final MongoController mongo;
+
+    public MongoIndexService(MongoTemplate template, MongoController mongo) {
+        this.template = template;
+        this.mongo = mongo;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        backfillTextLanguage();
+        ensureIndexes(NewsEntry.class);
+        ensureIndexes(SummaryJob.class);
+        ensureIndexes(SummaryCacheEntry.class);
+        reportQueryPlans();
+    }
+
+    private void backfillTextLanguage() {
+        for (var language : List.of("en", "de")) {
+            var result = template.updateMulti(
+                    new Query(Criteria.where("language").is(language).and("textLanguage").exists(false)),
+                    new Update().set("textLanguage", NewsEntry.toTextLanguage(language)),
+                    NewsEntry.class);
+            if (result.getModifiedCount() > 0) {
+                LOG.info("Set the text search language of {} '{}' entries", result.getModifiedCount(), language);
+            }
+        }
+    }
+
+    private void ensureIndexes(Class<?> documentType) {
+        var resolver = new MongoPersistentEntityIndexResolver(template.getConverter().getMappingContext());
+        var indexOps = template.indexOps(documentType);
+        for (var index : resolver.resolveIndexFor(documentType)) {
+            try {
+                indexOps.createIndex(index);
+            } catch (Exception e) {
+                LOG.warn("Could not create index {} on {}", index.getIndexKeys(), documentType.getSimpleName(), e);
+            }
+        }
+        LOG.info("Ensured indexes for {}", documentType.getSimpleName());
+    }
+
+    private void reportQueryPlans() {
+        var converter = template.getConverter();
+        var queryMapper = new QueryMapper(converter);
+        var entity = converter.getMappingContext().getPersistentEntity(NewsEntry.class);
+        var collection = template.getCollection(template.getCollectionName(NewsEntry.class));
+
+        mongo.queryShapes().forEach((name, query) -> {
+            try {
+                var filter = queryMapper.getMappedObject(query.getQueryObject(), entity);
+                var sort = queryMapper.getMappedSort(query.getSortObject(), entity);
+                var explain = collection.find(filter).sort(sort).limit(query.getLimit()).explain();
+                var winningPlan = explain.get("queryPlanner", Document.class).get("winningPlan");
+
+                if (containsStage(winningPlan, "COLLSCAN")) {
+                    LOG.warn("Query '{}' is executed as a collection scan: filter={}, sort={}", name, filter.toJson(), sort.toJson());
+                } else {
+                    LOG.info("Query '{}' uses an index", name);
+                }
+            } catch (Exception e) {
+                LOG.warn("Could not explain query '{}'", name, e);
+            }
+        });
+    }
+
+    private boolean containsStage(Object plan, String stage) {
+        if (plan instanceof Map<?, ?> map) {
+            if (stage.equals(map.get("stage"))) {
+                return true;
+            }
+            return map.values().stream().anyMatch(value -> containsStage(value, stage));
+        }
+        if (plan instanceof List<?> list) {
+            return list.stream().anyMatch(value -> containsStage(value, stage));
+        }
+        return false;
+    }
+}
@@ -0,0 +1,132 @@
+package ch.climbd.newsfeed.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter that adds a larger, stricter slice whenever the current one is full,
+ * so the false positive rate stays bounded while the number of elements is unknown up front.
+ */
+final class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Slice> slices = new CopyOnWriteArrayList<>();
+    private final double falsePositiveRate;
+
+    ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        this.falsePositiveRate = falsePositiveRate;
+        slices.add(new Slice(Math.max(1024, initialCapacity), falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    void add(String value) {
+        long h1 = hash1(value);
+        long h2 = hash2(value);
+        currentSlice().add(h1, h2);
+    }
+
+    boolean mightContain(String value) {
+        long h1 = hash1(value);
+        long h2 = hash2(value);
+        for (var slice : slices) {
+            if (slice.mightContain(h1, h2)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long size() {
+        return slices.stream().mapToLong(slice -> slice.count.get()).sum();
+    }
+
+    long sizeInBytes() {
+        return slices.stream().mapToLong(slice -> slice.bits.length() * 8L).sum();
+    }
+
+    private Slice currentSlice() {
+        var current = slices.getLast();
+        if (current.count.get() < current.capacity) {
+            return current;
+        }
+
+        synchronized (slices) {
+            current = slices.getLast();
+            if (current.count.get() >= current.capacity) {
+                var rate = falsePositiveRate * (1 - TIGHTENING_RATIO) * Math.pow(TIGHTENING_RATIO, slices.size());
+                current = new Slice(current.capacity * GROWTH_FACTOR, rate);
+                slices.add(current);
+            }
+            return current;
+        }
+    }
+
+    private static long hash1(String value) {
+        // FNV-1a over the UTF-8 bytes
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long hash2(String value) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = 31 * hash + value.charAt(i);
+        }
+        // Must be odd so the probe sequence visits distinct bits
+        return mix(hash) | 1;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static final class Slice {
+        private final AtomicLongArray bits;
+        private final long numBits;
+        private final int numHashes;
+        private final long capacity;
+        private final AtomicLong count = new AtomicLong();
+
+        private Slice(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) Math.min(Integer.MAX_VALUE, (optimalBits + 63) / 64));
+            this.numBits = bits.length() * 64L;
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        }
+
+        private void add(long h1, long h2) {
+            boolean changed = false;
+            for (int i = 0; i < numHashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, numBits);
+                int index = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long previous = bits.getAndUpdate(index, word -> word | mask);
+                changed |= (previous & mask) == 0;
+            }
+            if (changed) {
+                count.incrementAndGet();
+            }
+        }
+
+        private boolean mightContain(long h1, long h2) {
+            for (int i = 0; i < numHashes; i++) {
+                long bit = Math.floorMod(h1 + i * h2, numBits);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
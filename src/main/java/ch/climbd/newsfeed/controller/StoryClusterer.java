@@ -0,0 +1,258 @@
+package ch.climbd.newsfeed.controller;
+
+import ch.climbd.newsfeed.data.NewsEntry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Groups entries of different feeds that report the same story. Each entry gets a MinHash signature over
+ * the word shingles of its title and text; entries whose signatures share a band with a recent story are
+ * compared with it and marked as its duplicate if they are similar enough. Only the first entry of a story,
+ * its representative, is listed.
+ */
+@Component
+public class StoryClusterer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StoryClusterer.class);
+    private static final int BANDS = 16;
+    private static final int ROWS = 4;
+    private static final int SIGNATURE_SIZE = BANDS * ROWS;
+    private static final int SHINGLE_SIZE = 3;
+    private static final int MAX_TEXT_LENGTH = 2000;
+    private static final double SIMILARITY_THRESHOLD = 0.5;
+    private static final int STORY_WINDOW_DAYS = 3;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final long[] SEEDS = createSeeds();
+
+    private record Story(String link, long[] signature, LocalDateTime publishedAt) {
+    }
+
+    private final MongoTemplate template;
+    private final MongoController mongo;
+    private final Map<String, Story> stories = new HashMap<>();
+    private final Map<Long, Set<String>> buckets = new HashMap<>();
+
+    public StoryClusterer(MongoTemplate template, MongoController mongo) {
+        this.template = template;
+        this.mongo = mongo;
+    }
+
+    @PostConstruct
+    void init() {
+        Thread.startVirtualThread(this::warmUp);
+    }
+
+    /**
+     * Computes the signature of the entry and marks it as duplicate if it reports a known story. Entries that
+     * start a new story are only known once they are stored, see {@link #registerStories(List)}.
+     */
+    public synchronized void assign(NewsEntry entry) {
+        var signature = signature(Objects.toString(entry.getTitle(), "") + " " + Objects.toString(entry.getPlainText(), ""));
+        entry.setMinHash(signature);
+        if (signature == null) {
+            return;
+        }
+
+        var representative = findSimilarStory(signature);
+        if (representative != null) {
+            entry.setDuplicateOf(representative.link());
+            LOG.debug("Same story as {}: {}", representative.link(), entry.getLink());
+        }
+    }
+
+    /**
+     * Registers the stored entries that start a new story, so later entries of other feeds can join them.
+     */
+    public synchronized void registerStories(List<NewsEntry> stored) {
+        for (var entry : stored) {
+            if (entry.getDuplicateOf() == null && entry.getMinHash() != null) {
+                register(new Story(entry.getLink(), entry.getMinHash(), entry.getPublishedAt()));
+            }
+        }
+    }
+
+    /**
+     * Hands the story of a deleted entry over to its earliest remaining duplicate, otherwise the other
+     * entries of the story would stay hidden.
+     */
+    public void storyDeleted(NewsEntry entry) {
+        synchronized (this) {
+            var story = stories.remove(entry.getLink());
+            if (story != null) {
+                for (var band = 0; band < BANDS; band++) {
+                    var links = buckets.get(bandKey(story.signature(), band));
+                    if (links != null) {
+                        links.remove(story.link());
+                    }
+                }
+            }
+        }
+
+        // Outside the lock, ingestion does not wait for the database
+        var successor = mongo.promoteDuplicate(entry.getLink());
+        if (successor != null && successor.getMinHash() != null && successor.getMinHash().length == SIGNATURE_SIZE) {
+            synchronized (this) {
+                register(new Story(successor.getLink(), successor.getMinHash(), successor.getPublishedAt()));
+            }
+            LOG.debug("{} represents the story of deleted {}", successor.getLink(), entry.getLink());
+        }
+    }
+
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.HOURS)
+    public synchronized void evictOldStories() {
+        var oldest = LocalDateTime.now().minusDays(STORY_WINDOW_DAYS);
+        stories.values().removeIf(story -> story.publishedAt() != null && story.publishedAt().isBefore(oldest));
+        buckets.values().forEach(links -> links.removeIf(link -> !stories.containsKey(link)));
+        buckets.values().removeIf(Set::isEmpty);
+    }
+
+    private Story findSimilarStory(long[] signature) {
+        Set<String> candidates = new HashSet<>();
+        for (var band = 0; band < BANDS; band++) {
+            var links = buckets.get(bandKey(signature, band));
+            if (links != null) {
+                candidates.addAll(links);
+            }
+        }
+
+        Story best = null;
+        var bestSimilarity = SIMILARITY_THRESHOLD;
+        for (var link : candidates) {
+            var story = stories.get(link);
+            var similarity = similarity(signature, story.signature());
+            if (similarity >= bestSimilarity) {
+                best = story;
+                bestSimilarity = similarity;
+            }
+        }
+        return best;
+    }
+
+    private void register(Story story) {
+        stories.put(story.link(), story);
+        for (var band = 0; band < BANDS; band++) {
+            buckets.computeIfAbsent(bandKey(story.signature(), band), key -> new HashSet<>()).add(story.link());
+        }
+    }
+
+    private void warmUp() {
+        try {
+            var query = new Query(Criteria.where("duplicateOf").is(null)
+                    .and("minHash").exists(true)
+                    .and("publishedAt").gte(ZonedDateTime.now().minusDays(STORY_WINDOW_DAYS).toInstant()));
+            query.fields().include("publishedAt", "minHash");
+
+            var count = 0;
+            try (var entries = template.stream(query, NewsEntry.class)) {
+                for (var entry : (Iterable<NewsEntry>) entries::iterator) {
+                    if (entry.getMinHash() != null && entry.getMinHash().length == SIGNATURE_SIZE) {
+                        synchronized (this) {
+                            register(new Story(entry.getLink(), entry.getMinHash(), entry.getPublishedAt()));
+                        }
+                        count++;
+                    }
+                }
+            }
+            LOG.info("Story clustering warmed up with {} recent stories", count);
+        } catch (Exception e) {
+            LOG.warn("Could not warm up story clustering, starting with new stories only", e);
+        }
+    }
+
+    /**
+     * @return the MinHash signature of the text or {@code null} if it has no words
+     */
+    static long[] signature(String text) {
+        var normalized = NON_WORD.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+        if (normalized.isEmpty()) {
+            return null;
+        }
+        if (normalized.length() > MAX_TEXT_LENGTH) {
+            normalized = normalized.substring(0, MAX_TEXT_LENGTH);
+        }
+
+        var words = normalized.split(" ");
+        var signature = new long[SIGNATURE_SIZE];
+        Arrays.fill(signature, Long.MAX_VALUE);
+
+        var shingles = Math.max(1, words.length - SHINGLE_SIZE + 1);
+        for (var start = 0; start < shingles; start++) {
+            var shingle = fnv1a(words, start, Math.min(words.length, start + SHINGLE_SIZE));
+            for (var i = 0; i < SIGNATURE_SIZE; i++) {
+                var hash = mix(shingle ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        return signature;
+    }
+
+    static double similarity(long[] first, long[] second) {
+        var equal = 0;
+        for (var i = 0; i < SIGNATURE_SIZE; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIGNATURE_SIZE;
+    }
+
+    private static long bandKey(long[] signature, int band) {
+        long key = band;
+        for (var row = 0; row < ROWS; row++) {
+            key = key * 31 + signature[band * ROWS + row];
+        }
+        return mix(key);
+    }
+
+    private static long fnv1a(String[] words, int from, int to) {
+        var hash = 0xcbf29ce484222325L;
+        for (var w = from; w < to; w++) {
+            var word = words[w];
+            for (var i = 0; i < word.length(); i++) {
+                hash ^= word.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= ' ';
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static long[] createSeeds() {
+        var seeds = new long[SIGNATURE_SIZE];
+        var state = 0x9e3779b97f4a7c15L;
+        for (var i = 0; i < SIGNATURE_SIZE; i++) {
+            state += 0x9e3779b97f4a7c15L;
+            seeds[i] = mix(state);
+        }
+        return seeds;
+    }
+}
@@ -0,0 +1,89 @@
+package ch.climbd.newsfeed.controller;
+
+import ch.climbd.newsfeed.data.SummaryCacheEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Summaries stored by a fingerprint of the summarized text. The same article often arrives through several
+ * feeds under different links; its text is then only sent to the model once. Entries expire after 30 days.
+ */
+@Service
+public class SummaryCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SummaryCache.class);
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Shorter texts say too little to be worth a summary and would share fingerprints across articles
+    private static final int MIN_TEXT_LENGTH = 200;
+
+    private final MongoTemplate template;
+    private final Counter hits;
+    private final Counter misses;
+
+    public SummaryCache(MongoTemplate template, MeterRegistry meterRegistry) {
+        this.template = template;
+        this.hits = Counter.builder("newsfeed.summarizer.cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("newsfeed.summarizer.cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the stored summary of the text or {@code null}
+     */
+    public String find(String fingerprint) {
+        var entry = template.findById(fingerprint, SummaryCacheEntry.class);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.getSummary();
+    }
+
+    public void store(String fingerprint, String summary) {
+        try {
+            template.save(new SummaryCacheEntry(fingerprint, summary, Instant.now()));
+        } catch (Exception e) {
+            LOG.warn("Could not store summary in cache", e);
+        }
+    }
+
+    /**
+     * @return whether the text has enough words to be summarized and cached, e.g. not only markup
+     */
+    public static boolean isSummarizable(String text) {
+        return text != null && normalize(text).length() >= MIN_TEXT_LENGTH;
+    }
+
+    /**
+     * Hash of the text that ignores differences in case, punctuation and whitespace.
+     */
+    public static String fingerprint(String text) {
+        var normalized = normalize(text);
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String normalize(String text) {
+        return NON_WORD.matcher(text.toLowerCase(Locale.ROOT)).replaceAll(" ").strip();
+    }
+}
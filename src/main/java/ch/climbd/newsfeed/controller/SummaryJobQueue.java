@@ -0,0 +1,163 @@
+package ch.climbd.newsfeed.controller;
+
+import ch.climbd.newsfeed.data.NewsEntry;
+import ch.climbd.newsfeed.data.SummaryJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+/**
+ * Summarization jobs stored in MongoDB. A job is claimed with a lease, so it is processed by one worker at a
+ * time across all instances, and picked up again if its worker disappears before finishing it.
+ */
+@Service
+public class SummaryJobQueue {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SummaryJobQueue.class);
+    private static final Duration LEASE_DURATION = Duration.ofMinutes(15);
+    private static final Duration RETRY_BASE_DELAY = Duration.ofMinutes(1);
+    private static final Duration RETRY_MAX_DELAY = Duration.ofHours(6);
+    private static final int MAX_ATTEMPTS = 8;
+
+    private final MongoTemplate template;
+    private final String instanceId = ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID();
+
+    public SummaryJobQueue(MongoTemplate template) {
+        this.template = template;
+    }
+
+    /**
+     * Adds a job for the entry unless one exists already.
+     *
+     * @return {@code true} if a new job was created
+     */
+    public boolean enqueue(NewsEntry news) {
+        var now = Instant.now();
+        var update = new Update()
+                .setOnInsert("state", SummaryJob.State.PENDING)
+                .setOnInsert("attempts", 0)
+                .setOnInsert("nextRunAt", now)
+                .setOnInsert("priority", priority(news.getPublishedAt(), news.getVotes()))
+                .setOnInsert("createdAt", now);
+        try {
+            var result = template.upsert(Query.query(Criteria.where("link").is(news.getLink())), update, SummaryJob.class);
+            return result.getUpsertedId() != null;
+        } catch (DuplicateKeyException e) {
+            // A concurrent upsert of the same link created the job first
+            return false;
+        }
+    }
+
+    /**
+     * Claims the most important job that is due, including jobs whose lease has run out.
+     *
+     * @return the claimed job or {@code null} if nothing is due
+     */
+    public SummaryJob claim() {
+        var now = Instant.now();
+        var query = new Query(new Criteria().orOperator(
+                Criteria.where("state").is(SummaryJob.State.PENDING).and("nextRunAt").lte(now),
+                Criteria.where("state").is(SummaryJob.State.RUNNING).and("leaseUntil").lt(now)));
+        query.with(Sort.by(Sort.Direction.DESC, "priority"));
+
+        var update = new Update()
+                .set("state", SummaryJob.State.RUNNING)
+                .set("leaseOwner", instanceId)
+                .set("leaseUntil", now.plus(LEASE_DURATION))
+                .inc("attempts", 1);
+
+        return template.findAndModify(query, update, FindAndModifyOptions.options().returnNew(true), SummaryJob.class);
+    }
+
+    /**
+     * Extends the lease of a job that is still being processed, so long summaries are not claimed again.
+     *
+     * @return {@code false} if the lease was lost to another worker in the meantime
+     */
+    public boolean renew(SummaryJob job) {
+        var result = template.updateFirst(leased(job),
+                new Update().set("leaseUntil", Instant.now().plus(LEASE_DURATION)),
+                SummaryJob.class);
+        return result.getMatchedCount() > 0;
+    }
+
+    /**
+     * Marks the job as done. Does nothing if the lease was lost to another worker in the meantime.
+     */
+    public void complete(SummaryJob job) {
+        template.updateFirst(leased(job),
+                new Update()
+                        .set("state", SummaryJob.State.DONE)
+                        .set("finishedAt", Instant.now())
+                        .unset("leaseOwner")
+                        .unset("leaseUntil"),
+                SummaryJob.class);
+    }
+
+    /**
+     * Schedules the job again with exponential backoff, or gives up after too many attempts.
+     */
+    public void fail(SummaryJob job, Exception error) {
+        var update = new Update()
+                .unset("leaseOwner")
+                .unset("leaseUntil")
+                .set("lastError", String.valueOf(error.getMessage()));
+
+        if (job.getAttempts() >= MAX_ATTEMPTS) {
+            LOG.warn("Giving up summarizing {} after {} attempts", job.getLink(), job.getAttempts());
+            update.set("state", SummaryJob.State.FAILED)
+                    .set("finishedAt", Instant.now());
+        } else {
+            var delay = RETRY_BASE_DELAY.multipliedBy(1L << Math.min(job.getAttempts() - 1, 16));
+            if (delay.compareTo(RETRY_MAX_DELAY) > 0) {
+                delay = RETRY_MAX_DELAY;
+            }
+            update.set("state", SummaryJob.State.PENDING)
+                    .set("nextRunAt", Instant.now().plus(delay));
+        }
+        template.updateFirst(leased(job), update, SummaryJob.class);
+    }
+
+    /**
+     * Moves a job that is still waiting according to the current votes of its entry.
+     */
+    public void updatePriority(String link, LocalDateTime publishedAt, Integer votes) {
+        template.updateFirst(
+                Query.query(Criteria.where("link").is(link).and("state").is(SummaryJob.State.PENDING)),
+                new Update().set("priority", priority(publishedAt, votes)),
+                SummaryJob.class);
+    }
+
+    public long pendingCount() {
+        return template.count(Query.query(Criteria.where("state").in(SummaryJob.State.PENDING, SummaryJob.State.RUNNING)),
+                SummaryJob.class);
+    }
+
+    // Every claim counts an attempt, so a claim that was taken over, even by this instance, no longer matches
+    private Query leased(SummaryJob job) {
+        return Query.query(Criteria.where("link").is(job.getLink())
+                .and("state").is(SummaryJob.State.RUNNING)
+                .and("leaseOwner").is(instanceId)
+                .and("attempts").is(job.getAttempts()));
+    }
+
+    // Freshest entries first, every vote counts like an hour of age
+    private static long priority(LocalDateTime publishedAt, Integer votes) {
+        var published = publishedAt == null ? 0 : publishedAt.toEpochSecond(ZoneOffset.UTC);
+        return published + (votes == null ? 0 : votes) * 3600L;
+    }
+}
@@ -0,0 +1,81 @@
+package ch.climbd.newsfeed.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Splits long texts into chunks of at most a given length. Chunks end at paragraph boundaries where
+ * possible, then at sentence boundaries, and only overlong sentences are cut at whitespace.
+ */
+final class TextChunker {
+
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n|\\r?\\n");
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?\\u2026])\\s+");
+
+    private TextChunker() {
+    }
+
+    static List<String> chunk(String text, int maxChars) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return chunks;
+        }
+
+        var current = new StringBuilder();
+        for (var paragraph : PARAGRAPH_BREAK.split(text.strip())) {
+            paragraph = paragraph.strip();
+            if (paragraph.isEmpty()) {
+                continue;
+            }
+
+            if (paragraph.length() <= maxChars) {
+                append(chunks, current, paragraph, "\n\n", maxChars);
+                continue;
+            }
+
+            for (var sentence : SENTENCE_END.split(paragraph)) {
+                if (sentence.length() <= maxChars) {
+                    append(chunks, current, sentence, " ", maxChars);
+                } else {
+                    for (var piece : splitAtWhitespace(sentence, maxChars)) {
+                        append(chunks, current, piece, " ", maxChars);
+                    }
+                }
+            }
+        }
+
+        if (!current.isEmpty()) {
+            chunks.add(current.toString());
+        }
+        return chunks;
+    }
+
+    private static void append(List<String> chunks, StringBuilder current, String part, String separator, int maxChars) {
+        if (!current.isEmpty() && current.length() + separator.length() + part.length() > maxChars) {
+            chunks.add(current.toString());
+            current.setLength(0);
+        }
+        if (!current.isEmpty()) {
+            current.append(separator);
+        }
+        current.append(part);
+    }
+
+    private static List<String> splitAtWhitespace(String text, int maxChars) {
+        List<String> pieces = new ArrayList<>();
+        var start = 0;
+        while (start < text.length()) {
+            var end = Math.min(start + maxChars, text.length());
+            if (end < text.length()) {
+                var lastSpace = text.lastIndexOf(' ', end);
+                if (lastSpace > start) {
+                    end = lastSpace;
+                }
+            }
+            pieces.add(text.substring(start, end).strip());
+            start = end;
+        }
+        return pieces;
+    }
+}
@@ -0,0 +1,75 @@
+package ch.climbd.newsfeed.controller;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects view increments in memory and writes them to MongoDB in periodic batches,
+ * keeping the database off the redirect path.
+ */
+@Service
+public class ViewCountBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ViewCountBuffer.class);
+
+    private final MongoController mongo;
+    // Increments and removals are atomic per link, so no view is counted into an entry a flush already took
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+    public ViewCountBuffer(MongoController mongo, MeterRegistry meterRegistry) {
+        this.mongo = mongo;
+        Gauge.builder("newsfeed.views.pending", this, ViewCountBuffer::pendingIncrements)
+                .description("View increments not yet written to MongoDB")
+                .register(meterRegistry);
+    }
+
+    public void increaseViews(String url) {
+        pending.merge(url, 1L, Long::sum);
+    }
+
+    public long pendingIncrements() {
+        return pending.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    @Scheduled(fixedDelay = 10, initialDelay = 10, timeUnit = TimeUnit.SECONDS)
+    public void flush() {
+        Map<String, Long> batch = new HashMap<>();
+        for (var url : pending.keySet()) {
+            var views = pending.remove(url);
+            if (views != null && views > 0) {
+                batch.put(url, views);
+            }
+        }
+
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            var rejected = mongo.increaseViews(batch);
+            if (!rejected.isEmpty()) {
+                LOG.warn("Could not flush {} of {} view counters, retrying them with the next flush", rejected.size(), batch.size());
+                rejected.forEach((url, views) -> pending.merge(url, views, Long::sum));
+            }
+            LOG.debug("Flushed views for {} links", batch.size() - rejected.size());
+        } catch (Exception e) {
+            LOG.warn("Could not flush {} view counters, retrying with the next flush", batch.size(), e);
+            batch.forEach((url, views) -> pending.merge(url, views, Long::sum));
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+}
@@ -0,0 +1,52 @@
+package ch.climbd.newsfeed.controller.scheduler;
+
+import ch.climbd.newsfeed.controller.ContentRenderer;
+import ch.climbd.newsfeed.controller.MongoController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Renders excerpts and HTML for entries stored before they were computed at ingestion time,
+ * in one pass over the collection.
+ */
+@Component
+public class ContentBackfillJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentBackfillJob.class);
+    private static final int BATCH_SIZE = 100;
+
+    @Autowired
+    private MongoController mongo;
+
+    @Autowired
+    private ContentRenderer contentRenderer;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBackfill() {
+        Thread.startVirtualThread(this::backfill);
+    }
+
+    private void backfill() {
+        int rendered = 0;
+        try {
+            var batch = mongo.findUnrendered(null, BATCH_SIZE);
+            while (!batch.isEmpty()) {
+                batch.forEach(contentRenderer::render);
+                mongo.saveRendering(batch);
+                rendered += batch.size();
+                batch = mongo.findUnrendered(batch.getLast().getLink(), BATCH_SIZE);
+            }
+        } catch (Exception e) {
+            LOG.warn("Content backfill stopped after {} entries", rendered, e);
+            return;
+        }
+
+        if (rendered > 0) {
+            LOG.info("Content backfill rendered {} entries", rendered);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ch.climbd.newsfeed.controller.scheduler;
+
+public record FeedPollResult(int newEntries, boolean failed) {
+
+    static FeedPollResult success(int newEntries) {
+        return new FeedPollResult(newEntries, false);
+    }
+
+    static FeedPollResult failure() {
+        return new FeedPollResult(0, true);
+    }
+}
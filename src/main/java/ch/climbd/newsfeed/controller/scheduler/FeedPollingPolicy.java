@@ -0,0 +1,60 @@
+package ch.climbd.newsfeed.controller.scheduler;
+
+import ch.climbd.newsfeed.data.FeedState;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Derives the next poll time of a feed from its observed publish rate, the publisher's
+ * {@code <ttl>}/{@code sy:updatePeriod} hints and its recent failures.
+ */
+@Component
+public class FeedPollingPolicy {
+
+    static final int DEFAULT_INTERVAL_MINUTES = 15;
+    static final int MIN_INTERVAL_MINUTES = 5;
+    static final int MAX_INTERVAL_MINUTES = 6 * 60;
+    static final int MAX_FAILURE_INTERVAL_MINUTES = 12 * 60;
+
+    // Aim for roughly one new entry per poll
+    private static final double TARGET_NEW_ENTRIES_PER_POLL = 1.0;
+    private static final double SMOOTHING = 0.3;
+    private static final double IDLE_BACKOFF = 1.5;
+
+    public void apply(FeedState state, FeedPollResult result, Instant now) {
+        int interval = state.getPollIntervalMinutes() > 0 ? state.getPollIntervalMinutes() : DEFAULT_INTERVAL_MINUTES;
+
+        if (result.failed()) {
+            state.setConsecutiveFailures(state.getConsecutiveFailures() + 1);
+            long backoff = (long) DEFAULT_INTERVAL_MINUTES << Math.min(state.getConsecutiveFailures(), 10);
+            schedule(state, (int) Math.min(backoff, MAX_FAILURE_INTERVAL_MINUTES), now);
+            return;
+        }
+
+        state.setConsecutiveFailures(0);
+        double average = SMOOTHING * result.newEntries() + (1 - SMOOTHING) * state.getAverageNewEntries();
+        state.setAverageNewEntries(average);
+
+        int next;
+        if (result.newEntries() == 0 && average < TARGET_NEW_ENTRIES_PER_POLL) {
+            next = (int) Math.ceil(interval * IDLE_BACKOFF);
+        } else {
+            double entriesPerMinute = Math.max(average, result.newEntries()) / interval;
+            next = (int) Math.round(TARGET_NEW_ENTRIES_PER_POLL / entriesPerMinute);
+        }
+
+        next = Math.max(next, state.getPublisherHintMinutes());
+        next = Math.clamp(next, MIN_INTERVAL_MINUTES, MAX_INTERVAL_MINUTES);
+        schedule(state, next, now);
+    }
+
+    private void schedule(FeedState state, int intervalMinutes, Instant now) {
+        state.setPollIntervalMinutes(intervalMinutes);
+        // Spread feeds with the same interval so they don't all fire on the same tick
+        long jitterSeconds = ThreadLocalRandom.current().nextLong(Math.max(1, intervalMinutes * 6L));
+        state.setNextPollAt(now.plus(Duration.ofMinutes(intervalMinutes)).plusSeconds(jitterSeconds));
+    }
+}
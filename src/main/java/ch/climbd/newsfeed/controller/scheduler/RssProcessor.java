@@ -1,9 +1,14 @@
 package ch.climbd.newsfeed.controller.scheduler;
 
+import ch.climbd.newsfeed.controller.ContentRenderer;
 import ch.climbd.newsfeed.controller.MlController;
 import ch.climbd.newsfeed.controller.MongoController;
 import ch.climbd.newsfeed.controller.PushoverController;
+import ch.climbd.newsfeed.controller.StoryClusterer;
+import ch.climbd.newsfeed.data.FeedState;
 import ch.climbd.newsfeed.data.NewsEntry;
+import com.rometools.rome.feed.module.SyModule;
+import com.rometools.rome.feed.rss.Channel;
 import com.rometools.rome.feed.synd.SyndEntry;
 import com.rometools.rome.feed.synd.SyndFeed;
 import com.rometools.rome.io.SyndFeedInput;
@@ -17,17 +22,31 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import javax.net.ssl.*;
-import java.net.URL;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 @Component
 public class RssProcessor {
     private static final Logger LOG = LoggerFactory.getLogger(RssProcessor.class);
+    private static final int CONNECT_TIMEOUT_MS = 10_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
     private final ZoneId zoneId = ZoneId.of("Europe/Berlin");
 
     @Autowired
@@ -42,41 +61,170 @@ public class RssProcessor {
     @Autowired
     MlController mlController;
 
-    public int processRss(String url, String language) {
+    @Autowired
+    private ContentRenderer contentRenderer;
+
+    @Autowired
+    private StoryClusterer storyClusterer;
+
+    public FeedPollResult processRss(FeedState state, String language) {
+        var url = state.getUrl();
         var newEntries = new AtomicInteger(0);
         try {
             HttpsURLConnection.setDefaultHostnameVerifier(initTrustAll());
-            SyndFeed feed = new SyndFeedInput().build(new XmlReader(new URL(url)));
-            feed.getEntries().stream().map(this::map)
+            var response = fetchIfModified(url, state);
+            if (response == null) {
+                LOG.debug("RSS feed not modified: {}", url);
+                return FeedPollResult.success(0);
+            }
+
+            var input = new SyndFeedInput();
+            input.setPreserveWireFeed(true);
+            SyndFeed feed = input.build(response.reader());
+            state.setPublisherHintMinutes(publisherHintMinutes(feed));
+
+            Map<String, NewsEntry> candidates = feed.getEntries().stream().map(this::map)
                     .filter(item -> item.getLink() != null && item.getTitle() != null)
                     .filter(item -> !item.getLink().isBlank() && !item.getTitle().isBlank())
                     .filter(item -> item.getLink().startsWith("http"))
                     .filter(item -> !filter.isSpam(item.getTitle()))
-                    .filter(item -> !mongo.exists(item))
-                    .forEach(item -> {
-                        item.setLanguage(language);
-                        mongo.save(item);
-                        newEntries.incrementAndGet();
-                        pushover.sendNotification(item);
-                        LOG.debug("New entry: {}", item.getTitle());
-
-                        if (item.getContent() != null) {
-                            if (item.getLink().startsWith("https://www.youtube.com")) {
-                                mlController.queueSummarize(item);
-                            } else { // PreProcess HTML content
-                                item.setContent(processHtmlContent(item.getContent()));
-                                mongo.update(item);
-                                if (item.getContent().length() > 1000) {
-                                    mlController.queueSummarize(item);
-                                }
-                            }
-                        }
-                    });
+                    .collect(Collectors.toMap(NewsEntry::getLink, Function.identity(), (first, second) -> first, LinkedHashMap::new));
+
+            var existingLinks = mongo.findExistingLinks(candidates.keySet());
+            var newItems = candidates.values().stream()
+                    .filter(item -> !existingLinks.contains(item.getLink()))
+                    .toList();
+
+            // Clean up before the first write so every entry is stored exactly once
+            newItems.forEach(item -> {
+                item.setLanguage(language);
+                if (item.getContent() != null && !item.getLink().startsWith("https://www.youtube.com")) {
+                    item.setContent(processHtmlContent(item.getContent()));
+                }
+                contentRenderer.render(item);
+                storyClusterer.assign(item);
+            });
+
+            var inserted = mongo.insertAll(newItems);
+            storyClusterer.registerStories(inserted);
+            inserted.forEach(item -> {
+                newEntries.incrementAndGet();
+                if (item.getDuplicateOf() != null) {
+                    // Same story as an entry of another feed, only its source count is shown
+                    mongo.increaseSources(item.getDuplicateOf());
+                    LOG.debug("New source for {}: {}", item.getDuplicateOf(), item.getLink());
+                    return;
+                }
+                pushover.sendNotification(item);
+                LOG.debug("New entry: {}", item.getTitle());
+
+                if (item.getContent() != null) {
+                    if (item.getLink().startsWith("https://www.youtube.com")
+                            || item.getContent().length() > 1000) {
+                        mlController.queueSummarize(item);
+                    }
+                }
+            });
 
+            // Only remember the validators once the content was processed successfully
+            state.setEtag(response.etag());
+            state.setLastModified(response.lastModified());
+            state.setContentHash(response.contentHash());
         } catch (Exception e) {
             LOG.error("Error reading RSS feed: {}", url);
+            return FeedPollResult.failure();
+        }
+        return FeedPollResult.success(newEntries.get());
+    }
+
+    private int publisherHintMinutes(SyndFeed feed) {
+        int hint = 0;
+        if (feed.originalWireFeed() instanceof Channel channel && channel.getTtl() > 0) {
+            hint = channel.getTtl();
+        }
+
+        if (feed.getModule(SyModule.URI) instanceof SyModule syndication && syndication.getUpdatePeriod() != null) {
+            int periodMinutes = switch (syndication.getUpdatePeriod()) {
+                case "hourly" -> 60;
+                case "daily" -> 24 * 60;
+                case "weekly" -> 7 * 24 * 60;
+                case "monthly" -> 30 * 24 * 60;
+                case "yearly" -> 365 * 24 * 60;
+                default -> 0;
+            };
+            hint = Math.max(hint, periodMinutes / Math.max(1, syndication.getUpdateFrequency()));
+        }
+
+        return hint;
+    }
+
+    private FeedResponse fetchIfModified(String url, FeedState state) throws IOException {
+        var connection = (HttpURLConnection) URI.create(url).toURL().openConnection();
+        connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        connection.setReadTimeout(READ_TIMEOUT_MS);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        if (state.getEtag() != null) {
+            connection.setRequestProperty("If-None-Match", state.getEtag());
+        }
+        if (state.getLastModified() != null) {
+            connection.setRequestProperty("If-Modified-Since", state.getLastModified());
+        }
+
+        try {
+            int status = connection.getResponseCode();
+            state.setLastStatus(status);
+            state.setLastFetchedAt(Instant.now());
+
+            if (status == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                return null;
+            }
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new IOException("Unexpected HTTP status " + status + " for " + url);
+            }
+
+            byte[] body;
+            try (InputStream in = openBody(connection)) {
+                body = in.readAllBytes();
+            }
+
+            // Some servers ignore conditional headers, so compare the payload as well
+            var contentHash = sha256(body);
+            if (contentHash.equals(state.getContentHash())) {
+                state.setEtag(connection.getHeaderField("ETag"));
+                state.setLastModified(connection.getHeaderField("Last-Modified"));
+                return null;
+            }
+
+            var contentType = connection.getContentType();
+            var reader = contentType != null
+                    ? new XmlReader(new ByteArrayInputStream(body), contentType, true)
+                    : new XmlReader(new ByteArrayInputStream(body));
+
+            return new FeedResponse(reader,
+                    connection.getHeaderField("ETag"),
+                    connection.getHeaderField("Last-Modified"),
+                    contentHash);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private InputStream openBody(HttpURLConnection connection) throws IOException {
+        if ("gzip".equalsIgnoreCase(connection.getContentEncoding())) {
+            return new GZIPInputStream(connection.getInputStream());
         }
-        return newEntries.get();
+        return connection.getInputStream();
+    }
+
+    private String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record FeedResponse(XmlReader reader, String etag, String lastModified, String contentHash) {
     }
 
     private NewsEntry map(SyndEntry item) {
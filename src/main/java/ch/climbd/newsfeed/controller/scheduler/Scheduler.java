@@ -1,6 +1,8 @@
 package ch.climbd.newsfeed.controller.scheduler;
 
 import ch.climbd.newsfeed.controller.MongoChangeStreamService;
+import ch.climbd.newsfeed.controller.MongoController;
+import ch.climbd.newsfeed.data.FeedState;
 import ch.climbd.newsfeed.views.components.CommonComponents;
 import com.mongodb.client.model.changestream.OperationType;
 import jakarta.annotation.PostConstruct;
@@ -11,9 +13,11 @@ import org.springframework.core.env.Environment;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -26,6 +30,12 @@ public class Scheduler {
     @Autowired
     private RssProcessor processor;
 
+    @Autowired
+    private FeedPollingPolicy pollingPolicy;
+
+    @Autowired
+    private MongoController mongo;
+
     @Autowired
     private CommonComponents commonComponents;
 
@@ -36,6 +46,7 @@ public class Scheduler {
     private MongoChangeStreamService mongoChangeStreamService;
 
     private final Map<String, String> rssFeeds = new HashMap<>();
+    private final Map<String, FeedState> feedStates = new ConcurrentHashMap<>();
 
     @PostConstruct
     public void init() {
@@ -137,14 +148,24 @@ public class Scheduler {
         LOG.info("Icon cache initialised");
     }
 
-    @Scheduled(fixedDelay = 15, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
     public void scheduleFeedProcessing() {
-        LOG.info("Running RSS scheduler");
+        var now = Instant.now();
+        var dueFeeds = rssFeeds.entrySet()
+                .stream()
+                .filter(entry -> feedState(entry.getKey()).isDue(now))
+                .toList();
+
+        if (dueFeeds.isEmpty()) {
+            return;
+        }
+
+        LOG.info("Running RSS scheduler for {} due feeds", dueFeeds.size());
         int newEntries = 0;
         try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
-            List<java.util.concurrent.Future<Integer>> futures = rssFeeds.entrySet()
+            List<java.util.concurrent.Future<Integer>> futures = dueFeeds
                     .stream()
-                    .map(entry -> executor.submit(() -> processor.processRss(entry.getKey(), entry.getValue())))
+                    .map(entry -> executor.submit(() -> pollFeed(entry.getKey(), entry.getValue())))
                     .toList();
 
             for (var future : futures) {
@@ -165,4 +186,22 @@ public class Scheduler {
             LOG.info("RSS scheduler finished with no new entries.");
         }
     }
+
+    private int pollFeed(String url, String language) {
+        var state = feedState(url);
+        var result = processor.processRss(state, language);
+        pollingPolicy.apply(state, result, Instant.now());
+        LOG.debug("Polled {}: {} new entries, next poll in {} minutes", url, result.newEntries(), state.getPollIntervalMinutes());
+
+        try {
+            mongo.saveFeedState(state);
+        } catch (Exception e) {
+            LOG.warn("Could not persist fetch state for feed: {}", url, e);
+        }
+        return result.newEntries();
+    }
+
+    private FeedState feedState(String url) {
+        return feedStates.computeIfAbsent(url, mongo::findFeedState);
+    }
 }
@@ -0,0 +1,56 @@
+package ch.climbd.newsfeed.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document
+public class ChangeStreamState {
+    @Id
+    private String collection;
+
+    // Resume token of the last delivered event as extended JSON
+    private String resumeToken;
+    private Instant updatedAt;
+
+    public ChangeStreamState() {
+    }
+
+    public ChangeStreamState(String collection, String resumeToken, Instant updatedAt) {
+        this.collection = collection;
+        this.resumeToken = resumeToken;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public void setCollection(String collection) {
+        this.collection = collection;
+    }
+
+    public String getResumeToken() {
+        return resumeToken;
+    }
+
+    public void setResumeToken(String resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "ChangeStreamState[collection=%s, updatedAt=%s]",
+                collection, updatedAt);
+    }
+}
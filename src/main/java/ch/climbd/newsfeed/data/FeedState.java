@@ -0,0 +1,130 @@
+package ch.climbd.newsfeed.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document
+public class FeedState {
+    @Id
+    private String url;
+
+    private String etag;
+    private String lastModified;
+    private String contentHash;
+    private int lastStatus;
+    private Instant lastFetchedAt;
+
+    private int pollIntervalMinutes;
+    private Instant nextPollAt;
+    private int consecutiveFailures;
+    private double averageNewEntries;
+    private int publisherHintMinutes;
+
+    public FeedState() {
+    }
+
+    public FeedState(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(String etag) {
+        this.etag = etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(String lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public int getLastStatus() {
+        return lastStatus;
+    }
+
+    public void setLastStatus(int lastStatus) {
+        this.lastStatus = lastStatus;
+    }
+
+    public Instant getLastFetchedAt() {
+        return lastFetchedAt;
+    }
+
+    public void setLastFetchedAt(Instant lastFetchedAt) {
+        this.lastFetchedAt = lastFetchedAt;
+    }
+
+    public int getPollIntervalMinutes() {
+        return pollIntervalMinutes;
+    }
+
+    public void setPollIntervalMinutes(int pollIntervalMinutes) {
+        this.pollIntervalMinutes = pollIntervalMinutes;
+    }
+
+    public Instant getNextPollAt() {
+        return nextPollAt;
+    }
+
+    public void setNextPollAt(Instant nextPollAt) {
+        this.nextPollAt = nextPollAt;
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public void setConsecutiveFailures(int consecutiveFailures) {
+        this.consecutiveFailures = consecutiveFailures;
+    }
+
+    public double getAverageNewEntries() {
+        return averageNewEntries;
+    }
+
+    public void setAverageNewEntries(double averageNewEntries) {
+        this.averageNewEntries = averageNewEntries;
+    }
+
+    public int getPublisherHintMinutes() {
+        return publisherHintMinutes;
+    }
+
+    public void setPublisherHintMinutes(int publisherHintMinutes) {
+        this.publisherHintMinutes = publisherHintMinutes;
+    }
+
+    public boolean isDue(Instant now) {
+        return nextPollAt == null || !nextPollAt.isAfter(now);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "FeedState[url=%s, status=%s, interval=%smin, next=%s]",
+                url, lastStatus, pollIntervalMinutes, nextPollAt);
+    }
+}
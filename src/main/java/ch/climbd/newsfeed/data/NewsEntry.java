@@ -2,14 +2,24 @@ package ch.climbd.newsfeed.data;
 
 import lombok.EqualsAndHashCode;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.IndexDirection;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.index.TextIndexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Language;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 
-@Document
+@Document(language = "english")
+@CompoundIndex(name = "language_publishedAt", def = "{'language': 1, 'publishedAt': -1, '_id': -1}")
+@CompoundIndex(name = "language_publishedAt_votes", def = "{'language': 1, 'publishedAt': -1, 'votes': -1, '_id': -1}")
+@CompoundIndex(name = "language_publishedAt_views", def = "{'language': 1, 'publishedAt': -1, 'views': -1, '_id': -1}")
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class NewsEntry {
     @Id
@@ -17,11 +27,23 @@ public class NewsEntry {
     private String link;
 
     @EqualsAndHashCode.Include
+    @TextIndexed(weight = 5F)
     private String title;
+    @TextIndexed
     private String content = "";
+    @TextIndexed(weight = 2F)
     private String summary = "";
 
+    // Display forms derived from content/summary, null until rendered
+    private String plainText;
+    private String excerpt;
+    private String excerptShort;
+    private String renderedHtml;
+    // Summary output while it is generated, kept apart so its frequent updates are not watched
+    private String partialHtml;
+
     @EqualsAndHashCode.Include
+    @Indexed(name = "publishedAt", direction = IndexDirection.DESCENDING)
     private LocalDateTime publishedAt;
     private Integer votes = 0;
 
@@ -30,9 +52,27 @@ public class NewsEntry {
     @EqualsAndHashCode.Include
     private String language = "undefined";
 
+    // Language used by the text index for stemming, derived from the feed language
+    @Language
+    private String textLanguage = "none";
+
     @EqualsAndHashCode.Include
     private boolean deleted = false;
 
+    // Time the entry was stored, lets the change polling fallback pick up new entries since its last poll
+    @Indexed(name = "ingestedAt", sparse = true)
+    private Instant ingestedAt;
+
+    // Story clustering: link of the entry representing the same story, null for representatives
+    private String duplicateOf;
+    // Number of entries in the story cluster of a representative, including itself
+    private int sources = 1;
+    private long[] minHash;
+
+    // False for list entries that were read with only a prefix of the content and no summary
+    @Transient
+    private boolean detailsLoaded = true;
+
     public NewsEntry() {
     }
 
@@ -66,6 +106,46 @@ public class NewsEntry {
         this.summary = summary;
     }
 
+    public String getPlainText() {
+        return plainText;
+    }
+
+    public void setPlainText(String plainText) {
+        this.plainText = plainText;
+    }
+
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public void setExcerpt(String excerpt) {
+        this.excerpt = excerpt;
+    }
+
+    public String getExcerptShort() {
+        return excerptShort;
+    }
+
+    public void setExcerptShort(String excerptShort) {
+        this.excerptShort = excerptShort;
+    }
+
+    public String getRenderedHtml() {
+        return renderedHtml;
+    }
+
+    public void setRenderedHtml(String renderedHtml) {
+        this.renderedHtml = renderedHtml;
+    }
+
+    public String getPartialHtml() {
+        return partialHtml;
+    }
+
+    public void setPartialHtml(String partialHtml) {
+        this.partialHtml = partialHtml;
+    }
+
     public String getLink() {
         return link;
     }
@@ -74,6 +154,10 @@ public class NewsEntry {
         this.link = link;
     }
 
+    public LocalDateTime getPublishedAt() {
+        return publishedAt;
+    }
+
     public ZonedDateTime getPublishedDateTime() {
         ZoneId zId = ZoneId.of("Europe/Berlin");
 
@@ -117,6 +201,21 @@ public class NewsEntry {
 
     public void setLanguage(String language) {
         this.language = language;
+        this.textLanguage = toTextLanguage(language);
+    }
+
+    public String getTextLanguage() {
+        return textLanguage;
+    }
+
+    public static String toTextLanguage(String language) {
+        if ("de".equals(language)) {
+            return "german";
+        }
+        if ("en".equals(language)) {
+            return "english";
+        }
+        return "none";
     }
 
     public boolean isDeleted() {
@@ -127,6 +226,74 @@ public class NewsEntry {
         this.deleted = true;
     }
 
+    public Instant getIngestedAt() {
+        return ingestedAt;
+    }
+
+    public void setIngestedAt(Instant ingestedAt) {
+        this.ingestedAt = ingestedAt;
+    }
+
+    public String getDuplicateOf() {
+        return duplicateOf;
+    }
+
+    public void setDuplicateOf(String duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+
+    public int getSources() {
+        return sources;
+    }
+
+    public void setSources(int sources) {
+        this.sources = sources;
+    }
+
+    public long[] getMinHash() {
+        return minHash;
+    }
+
+    public void setMinHash(long[] minHash) {
+        this.minHash = minHash;
+    }
+
+    public boolean isDetailsLoaded() {
+        return detailsLoaded;
+    }
+
+    public void setDetailsLoaded(boolean detailsLoaded) {
+        this.detailsLoaded = detailsLoaded;
+    }
+
+    /**
+     * @return a copy that can be changed without affecting this entry, e.g. for one session
+     */
+    public NewsEntry copy() {
+        var copy = new NewsEntry();
+        copy.link = link;
+        copy.title = title;
+        copy.content = content;
+        copy.summary = summary;
+        copy.plainText = plainText;
+        copy.excerpt = excerpt;
+        copy.excerptShort = excerptShort;
+        copy.renderedHtml = renderedHtml;
+        copy.partialHtml = partialHtml;
+        copy.publishedAt = publishedAt;
+        copy.votes = votes;
+        copy.views = views;
+        copy.language = language;
+        copy.textLanguage = textLanguage;
+        copy.deleted = deleted;
+        copy.ingestedAt = ingestedAt;
+        copy.duplicateOf = duplicateOf;
+        copy.sources = sources;
+        copy.minHash = minHash;
+        copy.detailsLoaded = detailsLoaded;
+        return copy;
+    }
+
     public String getDomainWithProtocol() {
         if (!link.isEmpty()) {
             var start = link.indexOf("://") + 3;
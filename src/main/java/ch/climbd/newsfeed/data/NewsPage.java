@@ -0,0 +1,18 @@
+package ch.climbd.newsfeed.data;
+
+import java.util.List;
+
+/**
+ * One page of a list query together with the opaque token to continue after its last entry.
+ * {@code nextCursor} is {@code null} when there are no further entries.
+ */
+public record NewsPage(List<NewsEntry> entries, String nextCursor) {
+
+    public static NewsPage empty() {
+        return new NewsPage(List.of(), null);
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,41 @@
+package ch.climbd.newsfeed.data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Sort key of the last entry of a page, encoded as an opaque continuation token.
+ * {@code counter} holds the votes or views of the entry for the ranked lists and is {@code null} otherwise.
+ */
+public record PageCursor(LocalDateTime publishedAt, Integer counter, String link) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        var raw = publishedAt + SEPARATOR + (counter == null ? "" : counter) + SEPARATOR + link;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the decoded cursor or {@code null} if the token is empty or malformed
+     */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        try {
+            var raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The link is last and may itself contain the separator
+            var parts = raw.split("\\|", 3);
+            if (parts.length != 3) {
+                return null;
+            }
+            var counter = parts[1].isEmpty() ? null : Integer.valueOf(parts[1]);
+            return new PageCursor(LocalDateTime.parse(parts[0]), counter, parts[2]);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ch.climbd.newsfeed.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document
+public class SummaryCacheEntry {
+    // SHA-256 of the normalized text that was summarized
+    @Id
+    private String fingerprint;
+
+    private String summary;
+
+    @Indexed(name = "createdAt", expireAfter = "30d")
+    private Instant createdAt;
+
+    public SummaryCacheEntry() {
+    }
+
+    public SummaryCacheEntry(String fingerprint, String summary, Instant createdAt) {
+        this.fingerprint = fingerprint;
+        this.summary = summary;
+        this.createdAt = createdAt;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(String fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public void setSummary(String summary) {
+        this.summary = summary;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "SummaryCacheEntry[fingerprint=%s, createdAt=%s]",
+                fingerprint, createdAt);
+    }
+}
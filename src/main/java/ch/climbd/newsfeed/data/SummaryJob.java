@@ -0,0 +1,124 @@
+package ch.climbd.newsfeed.data;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document
+@CompoundIndex(name = "state_priority", def = "{'state': 1, 'priority': -1}")
+public class SummaryJob {
+
+    public enum State {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    // Link of the news entry to summarize
+    @Id
+    private String link;
+
+    private State state;
+    private int attempts;
+    private String leaseOwner;
+    private Instant leaseUntil;
+    private Instant nextRunAt;
+    private long priority;
+    private Instant createdAt;
+    private String lastError;
+    // Set once the job is done or given up, finished jobs are removed a week later. Longer than entries are
+    // considered for requeueing after a restart, so a finished job is not started again.
+    @Indexed(name = "finishedAt", expireAfter = "7d")
+    private Instant finishedAt;
+
+    public SummaryJob() {
+    }
+
+    public String getLink() {
+        return link;
+    }
+
+    public void setLink(String link) {
+        this.link = link;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLeaseOwner() {
+        return leaseOwner;
+    }
+
+    public void setLeaseOwner(String leaseOwner) {
+        this.leaseOwner = leaseOwner;
+    }
+
+    public Instant getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public void setLeaseUntil(Instant leaseUntil) {
+        this.leaseUntil = leaseUntil;
+    }
+
+    public Instant getNextRunAt() {
+        return nextRunAt;
+    }
+
+    public void setNextRunAt(Instant nextRunAt) {
+        this.nextRunAt = nextRunAt;
+    }
+
+    public long getPriority() {
+        return priority;
+    }
+
+    public void setPriority(long priority) {
+        this.priority = priority;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(Instant finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "SummaryJob[link=%s, state=%s, attempts=%s, nextRunAt=%s]",
+                link, state, attempts, nextRunAt);
+    }
+}
@@ -1,5 +1,6 @@
 package ch.climbd.newsfeed.views;
 
+import ch.climbd.newsfeed.controller.ContentRenderer;
 import ch.climbd.newsfeed.controller.MongoController;
 import ch.climbd.newsfeed.data.NewsEntry;
 import ch.climbd.newsfeed.views.components.CommonComponents;
@@ -28,6 +29,9 @@ public class AddView extends VerticalLayout {
     @Autowired
     private MongoController mongo;
 
+    @Autowired
+    private ContentRenderer contentRenderer;
+
     @Autowired
     private CommonComponents commonComponents;
 
@@ -109,6 +113,7 @@ public class AddView extends VerticalLayout {
                 newsEntry.setLanguage("en");
             }
 
+            contentRenderer.render(newsEntry);
             mongo.save(newsEntry);
             title.clear();
             link.clear();
@@ -1,12 +1,16 @@
 package ch.climbd.newsfeed.views;
 
+import ch.climbd.newsfeed.controller.FrontPageCache;
 import ch.climbd.newsfeed.controller.MongoChangeStreamService;
 import ch.climbd.newsfeed.controller.MongoController;
 import ch.climbd.newsfeed.data.NewsEntry;
+import ch.climbd.newsfeed.data.NewsPage;
 import ch.climbd.newsfeed.views.components.CommonComponents;
 import ch.climbd.newsfeed.views.components.CommonSessionComponents;
+import ch.climbd.newsfeed.views.components.KeysetPager;
 import ch.climbd.newsfeed.views.components.NewsItemComponent;
 import ch.climbd.newsfeed.views.components.SearchComponent;
+import com.mongodb.client.model.changestream.OperationType;
 import com.vaadin.flow.component.ClientCallable;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.html.Div;
@@ -29,7 +33,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Route("")
 @PageTitle("Climbd Cycling News - Latest News")
 public class LatestView extends VerticalLayout {
-    private static final int INITIAL_BATCH_SIZE = 20;
+    private static final int INITIAL_BATCH_SIZE = FrontPageCache.FIRST_PAGE_SIZE;
     private static final int LOAD_MORE_BATCH_SIZE = 10;
     private static final String LOAD_MORE_ROOT_MARGIN = "0px 0px 600px 0px";
 
@@ -38,6 +42,9 @@ public class LatestView extends VerticalLayout {
     @Autowired
     private MongoController mongo;
 
+    @Autowired
+    private FrontPageCache frontPageCache;
+
     @Autowired
     private CommonComponents commonComponents;
 
@@ -56,10 +63,14 @@ public class LatestView extends VerticalLayout {
     @Value("${baseurl}")
     private String baseUrl;
 
+    @Value("${newsfeed.virtual-list:false}")
+    private boolean virtualList;
+
     private final List<NewsEntry> loadedEntries = new ArrayList<>();
-    private int nextOffset = 0;
+    private String nextCursor;
     private boolean hasMoreEntries = true;
     private VerticalLayout renderedNewsList;
+    private VerticalLayout newsList;
     private VerticalLayout newsItemsContainer;
     private Div bottomSentinel;
     private AutoCloseable mongoSubscription;
@@ -121,11 +132,19 @@ public class LatestView extends VerticalLayout {
 
     private void refreshNewsItems() {
         loadedEntries.clear();
-        nextOffset = 0;
+        nextCursor = null;
         hasMoreEntries = true;
+        newsList = null;
         renderedNewsList.removeAll();
         newsItemsContainer.removeAll();
         newsItemsContainer.add(renderedNewsList, bottomSentinel);
+        if (virtualList) {
+            // The virtual list fetches its own pages while scrolling
+            hasMoreEntries = false;
+            bottomSentinel.setVisible(false);
+            renderedNewsList.add(newsItemComponent.createVirtualNewsList(new KeysetPager(this::loadPage, INITIAL_BATCH_SIZE)));
+            return;
+        }
         loadNextBatch(INITIAL_BATCH_SIZE);
     }
 
@@ -140,11 +159,8 @@ public class LatestView extends VerticalLayout {
             return;
         }
 
-        List<NewsEntry> nextBatch = mongo.findOrderedByDatePage(
-                commonSessionComponents.getSelectedLanguages(),
-                nextOffset,
-                batchSize
-        );
+        NewsPage nextPage = loadPage(nextCursor, batchSize);
+        List<NewsEntry> nextBatch = nextPage.entries();
 
         if (nextBatch.isEmpty()) {
             hasMoreEntries = false;
@@ -152,16 +168,25 @@ public class LatestView extends VerticalLayout {
             return;
         }
 
-        int previousFocusIndex = commonSessionComponents.getFocusKeyIndex();
+        nextCursor = nextPage.nextCursor();
+        hasMoreEntries = nextPage.hasMore();
+        if (loadedEntries.isEmpty()) {
+            newsList = newsItemComponent.createNewsItem(nextBatch);
+            renderedNewsList.add(newsList);
+        } else if (!newsItemComponent.appendNewsItems(newsList, nextBatch)) {
+            hasMoreEntries = false;
+        }
         loadedEntries.addAll(nextBatch);
-        nextOffset += nextBatch.size();
-        hasMoreEntries = nextBatch.size() == batchSize;
-        renderedNewsList.removeAll();
-        renderedNewsList.add(newsItemComponent.createNewsItem(loadedEntries));
-        commonSessionComponents.setFocusKeyIndex(Math.min(previousFocusIndex, loadedEntries.size() - 1));
         bottomSentinel.setVisible(hasMoreEntries);
     }
 
+    private NewsPage loadPage(String cursor, int limit) {
+        var languages = commonSessionComponents.getSelectedLanguages();
+        return cursor == null
+                ? frontPageCache.firstPage(FrontPageCache.ListType.LATEST, languages, limit)
+                : mongo.findOrderedByDatePage(languages, cursor, limit);
+    }
+
     private void setupBottomObserver() {
         getElement().executeJs("""
                 const host = this;
@@ -189,23 +214,52 @@ public class LatestView extends VerticalLayout {
     private void subscribeForRealtimeUpdates(UI ui) {
         unsubscribeFromRealtimeUpdates();
         mongoSubscription = mongoChangeStreamService.subscribe(event -> {
-            if (!"__rss_batch__".equals(event.link()) && !"__language_change__".equals(event.link())) {
+            if (needsRefresh(event)) {
+                if (refreshQueued.compareAndSet(false, true)) {
+                    ui.access(() -> {
+                        try {
+                            if (ui.isAttached()) {
+                                refreshNewsItems();
+                            }
+                        } finally {
+                            refreshQueued.set(false);
+                        }
+                    });
+                }
                 return;
             }
-            if (refreshQueued.compareAndSet(false, true)) {
-                ui.access(() -> {
-                    try {
-                        if (ui.isAttached()) {
-                            refreshNewsItems();
-                        }
-                    } finally {
-                        refreshQueued.set(false);
-                    }
-                });
+            if (event.link() == null || event.link().startsWith("__")) {
+                return;
             }
+            ui.access(() -> {
+                if (ui.isAttached()) {
+                    applyChange(event);
+                }
+            });
         });
     }
 
+    private boolean needsRefresh(MongoChangeStreamService.NewsChangeEvent event) {
+        if ("__language_change__".equals(event.link())
+                || MongoChangeStreamService.RESYNC_LINK.equals(event.link())) {
+            return true;
+        }
+        // The virtual list does not apply single changes, it is reloaded once per batch
+        return "__rss_batch__".equals(event.link()) && virtualList;
+    }
+
+    private void applyChange(MongoChangeStreamService.NewsChangeEvent event) {
+        if (newsList == null) {
+            return;
+        }
+        var entry = event.entry();
+        // Entries of a story that is already listed only raise its source count
+        boolean prependNew = entry != null && event.operationType() == OperationType.INSERT
+                && entry.getDuplicateOf() == null
+                && commonSessionComponents.getSelectedLanguages().contains(entry.getLanguage());
+        newsItemComponent.applyChange(newsList, event, prependNew);
+    }
+
     private void unsubscribeFromRealtimeUpdates() {
         if (mongoSubscription == null) {
             return;
@@ -1,11 +1,15 @@
 package ch.climbd.newsfeed.views;
 
+import ch.climbd.newsfeed.controller.FrontPageCache;
 import ch.climbd.newsfeed.controller.MongoChangeStreamService;
 import ch.climbd.newsfeed.controller.MongoController;
 import ch.climbd.newsfeed.data.NewsEntry;
+import ch.climbd.newsfeed.data.NewsPage;
 import ch.climbd.newsfeed.views.components.CommonSessionComponents;
+import ch.climbd.newsfeed.views.components.KeysetPager;
 import ch.climbd.newsfeed.views.components.NewsItemComponent;
 import ch.climbd.newsfeed.views.components.SearchComponent;
+import com.mongodb.client.model.changestream.OperationType;
 import com.vaadin.flow.component.ClientCallable;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.html.Div;
@@ -23,13 +27,16 @@ import org.springframework.beans.factory.annotation.Value;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Route("liked")
 @PageTitle("Climbd Cycling News - Most Liked News")
 public class MostLikedView extends VerticalLayout {
-    private static final int INITIAL_BATCH_SIZE = 20;
+    private static final int INITIAL_BATCH_SIZE = FrontPageCache.FIRST_PAGE_SIZE;
     private static final int LOAD_MORE_BATCH_SIZE = 10;
+    // Updates that can move an entry into the ranking: its counter or being promoted to story representative
+    private static final Set<String> RANKING_FIELDS = Set.of("votes", "duplicateOf");
     private static final String LOAD_MORE_ROOT_MARGIN = "0px 0px 600px 0px";
 
     private static final Logger LOG = LoggerFactory.getLogger(MostLikedView.class);
@@ -37,6 +44,9 @@ public class MostLikedView extends VerticalLayout {
     @Autowired
     private MongoController mongo;
 
+    @Autowired
+    private FrontPageCache frontPageCache;
+
     @Autowired
     private CommonSessionComponents commonSessionComponents;
 
@@ -52,10 +62,14 @@ public class MostLikedView extends VerticalLayout {
     @Value("${baseurl}")
     private String baseUrl;
 
+    @Value("${newsfeed.virtual-list:false}")
+    private boolean virtualList;
+
     private final List<NewsEntry> loadedEntries = new ArrayList<>();
-    private int nextOffset = 0;
+    private String nextCursor;
     private boolean hasMoreEntries = true;
     private VerticalLayout renderedNewsList;
+    private VerticalLayout newsList;
     private VerticalLayout newsItemsContainer;
     private Div bottomSentinel;
     private AutoCloseable mongoSubscription;
@@ -111,11 +125,19 @@ public class MostLikedView extends VerticalLayout {
 
     private void refreshNewsItems() {
         loadedEntries.clear();
-        nextOffset = 0;
+        nextCursor = null;
         hasMoreEntries = true;
+        newsList = null;
         renderedNewsList.removeAll();
         newsItemsContainer.removeAll();
         newsItemsContainer.add(renderedNewsList, bottomSentinel);
+        if (virtualList) {
+            // The virtual list fetches its own pages while scrolling
+            hasMoreEntries = false;
+            bottomSentinel.setVisible(false);
+            renderedNewsList.add(newsItemComponent.createVirtualNewsList(new KeysetPager(this::loadPage, INITIAL_BATCH_SIZE)));
+            return;
+        }
         loadNextBatch(INITIAL_BATCH_SIZE);
     }
 
@@ -130,11 +152,8 @@ public class MostLikedView extends VerticalLayout {
             return;
         }
 
-        List<NewsEntry> nextBatch = mongo.findOrderedByVotesPage(
-                commonSessionComponents.getSelectedLanguages(),
-                nextOffset,
-                batchSize
-        );
+        NewsPage nextPage = loadPage(nextCursor, batchSize);
+        List<NewsEntry> nextBatch = nextPage.entries();
 
         if (nextBatch.isEmpty()) {
             hasMoreEntries = false;
@@ -142,16 +161,25 @@ public class MostLikedView extends VerticalLayout {
             return;
         }
 
-        int previousFocusIndex = commonSessionComponents.getFocusKeyIndex();
+        nextCursor = nextPage.nextCursor();
+        hasMoreEntries = nextPage.hasMore();
+        if (loadedEntries.isEmpty()) {
+            newsList = newsItemComponent.createNewsItem(nextBatch);
+            renderedNewsList.add(newsList);
+        } else if (!newsItemComponent.appendNewsItems(newsList, nextBatch)) {
+            hasMoreEntries = false;
+        }
         loadedEntries.addAll(nextBatch);
-        nextOffset += nextBatch.size();
-        hasMoreEntries = nextBatch.size() == batchSize;
-        renderedNewsList.removeAll();
-        renderedNewsList.add(newsItemComponent.createNewsItem(loadedEntries));
-        commonSessionComponents.setFocusKeyIndex(Math.min(previousFocusIndex, loadedEntries.size() - 1));
         bottomSentinel.setVisible(hasMoreEntries);
     }
 
+    private NewsPage loadPage(String cursor, int limit) {
+        var languages = commonSessionComponents.getSelectedLanguages();
+        return cursor == null
+                ? frontPageCache.firstPage(FrontPageCache.ListType.LIKED, languages, limit)
+                : mongo.findOrderedByVotesPage(languages, cursor, limit);
+    }
+
     private void setupBottomObserver() {
         getElement().executeJs("""
                 const host = this;
@@ -179,23 +207,67 @@ public class MostLikedView extends VerticalLayout {
     private void subscribeForRealtimeUpdates(UI ui) {
         unsubscribeFromRealtimeUpdates();
         mongoSubscription = mongoChangeStreamService.subscribe(event -> {
-            if (!"__rss_batch__".equals(event.link()) && !"__language_change__".equals(event.link())) {
+            if (needsRefresh(event)) {
+                if (refreshQueued.compareAndSet(false, true)) {
+                    ui.access(() -> {
+                        try {
+                            if (ui.isAttached()) {
+                                refreshNewsItems();
+                            }
+                        } finally {
+                            refreshQueued.set(false);
+                        }
+                    });
+                }
                 return;
             }
-            if (refreshQueued.compareAndSet(false, true)) {
-                ui.access(() -> {
-                    try {
-                        if (ui.isAttached()) {
-                            refreshNewsItems();
-                        }
-                    } finally {
-                        refreshQueued.set(false);
-                    }
-                });
+            if (event.link() == null || event.link().startsWith("__")) {
+                return;
             }
+            ui.access(() -> {
+                if (ui.isAttached()) {
+                    applyChange(event);
+                }
+            });
         });
     }
 
+    private boolean needsRefresh(MongoChangeStreamService.NewsChangeEvent event) {
+        if ("__language_change__".equals(event.link())
+                || MongoChangeStreamService.RESYNC_LINK.equals(event.link())) {
+            return true;
+        }
+        // The virtual list does not apply single changes, it is reloaded once per batch
+        return "__rss_batch__".equals(event.link()) && virtualList;
+    }
+
+    private void applyChange(MongoChangeStreamService.NewsChangeEvent event) {
+        if (newsList == null) {
+            return;
+        }
+        // New entries start without votes and views, they do not belong on top of the ranking
+        if (entersLoadedRange(event)) {
+            // The ranking is computed by the query, reload the first page (from the shared cache)
+            refreshNewsItems();
+            return;
+        }
+        newsItemComponent.applyChange(newsList, event, false);
+    }
+
+    private boolean entersLoadedRange(MongoChangeStreamService.NewsChangeEvent event) {
+        var entry = event.entry();
+        if (event.operationType() != OperationType.UPDATE || !event.affects(RANKING_FIELDS)
+                || entry == null || entry.isDeleted() || entry.getDuplicateOf() != null
+                || entry.getVotes() == null || entry.getVotes() < 1
+                || !commonSessionComponents.getSelectedLanguages().contains(entry.getLanguage())
+                || newsItemComponent.isShown(newsList, event.link())) {
+            return false;
+        }
+        // Within the loaded entries when it is not older than the last one, the lists are ordered by date first
+        return !hasMoreEntries || loadedEntries.isEmpty()
+                || !entry.getPublishedAt().isBefore(loadedEntries.getLast().getPublishedAt());
+    }
+
     private void unsubscribeFromRealtimeUpdates() {
         if (mongoSubscription == null) {
             return;
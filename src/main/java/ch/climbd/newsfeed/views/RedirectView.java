@@ -1,6 +1,6 @@
 package ch.climbd.newsfeed.views;
 
-import ch.climbd.newsfeed.controller.MongoController;
+import ch.climbd.newsfeed.controller.ViewCountBuffer;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.router.*;
@@ -17,7 +17,7 @@ public class RedirectView extends Div
         implements HasUrlParameter<String> {
 
     @Autowired
-    private MongoController mongoController;
+    private ViewCountBuffer viewCountBuffer;
 
     @Override
     public void setParameter(BeforeEvent event, @OptionalParameter String parameter) {
@@ -52,7 +52,7 @@ public class RedirectView extends Div
             return;
         }
 
-        mongoController.increaseViews(url);
+        viewCountBuffer.increaseViews(url);
 
         UI.getCurrent().getPage().setLocation(uri.toString());
     }
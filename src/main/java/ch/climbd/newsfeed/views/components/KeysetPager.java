@@ -0,0 +1,74 @@
+package ch.climbd.newsfeed.views.components;
+
+import ch.climbd.newsfeed.data.NewsEntry;
+import ch.climbd.newsfeed.data.NewsPage;
+
+import java.util.ArrayList;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Serves offset based requests of lazy components from the keyset paged list queries. The cursor at
+ * every chunk boundary is remembered, so scrolling down needs one query per chunk and jumping back
+ * starts from the closest known cursor instead of the top.
+ */
+public class KeysetPager {
+
+    @FunctionalInterface
+    public interface PageLoader {
+        NewsPage load(String cursor, int limit);
+    }
+
+    /**
+     * An entry and its 1-based position in the list. Rows are identified by their position, so the
+     * row shown at an index can be refreshed with any instance for that index.
+     */
+    public record Row(int index, NewsEntry entry) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Row row && row.index == index;
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(index);
+        }
+    }
+
+    private final PageLoader loader;
+    private final int chunkSize;
+    private final NavigableMap<Integer, String> cursors = new TreeMap<>();
+
+    public KeysetPager(PageLoader loader, int chunkSize) {
+        this.loader = loader;
+        this.chunkSize = chunkSize;
+        cursors.put(0, null);
+    }
+
+    public synchronized Stream<Row> fetch(int offset, int limit) {
+        var rows = new ArrayList<Row>(limit);
+        var start = cursors.floorEntry(offset);
+        int position = start.getKey();
+        String cursor = start.getValue();
+        int end = offset + limit;
+
+        while (position < end) {
+            NewsPage page = loader.load(cursor, chunkSize);
+            var entries = page.entries();
+            for (int i = 0; i < entries.size(); i++) {
+                int rowOffset = position + i;
+                if (rowOffset >= offset && rowOffset < end) {
+                    rows.add(new Row(rowOffset + 1, entries.get(i)));
+                }
+            }
+            position += entries.size();
+            if (!page.hasMore()) {
+                break;
+            }
+            cursor = page.nextCursor();
+            cursors.put(position, cursor);
+        }
+        return rows.stream();
+    }
+}
@@ -1,6 +1,9 @@
 package ch.climbd.newsfeed.views.components;
 
+import ch.climbd.newsfeed.controller.ContentRenderer;
+import ch.climbd.newsfeed.controller.MongoChangeStreamService;
 import ch.climbd.newsfeed.controller.MongoController;
+import ch.climbd.newsfeed.controller.StoryClusterer;
 import ch.climbd.newsfeed.controller.scheduler.Filter;
 import ch.climbd.newsfeed.data.NewsEntry;
 import com.vaadin.flow.component.*;
@@ -16,17 +19,15 @@ import com.vaadin.flow.component.icon.VaadinIcon;
 import com.vaadin.flow.component.orderedlayout.FlexComponent;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
-import org.jsoup.Jsoup;
-import org.jsoup.safety.Safelist;
+import com.vaadin.flow.server.Command;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.Objects;
 
 import static com.vaadin.flow.component.ComponentUtil.fireEvent;
 
@@ -34,8 +35,15 @@ import static com.vaadin.flow.component.ComponentUtil.fireEvent;
 public class NewsItemComponent {
 
     private static final Logger LOG = LoggerFactory.getLogger(NewsItemComponent.class);
-    private static final Pattern PARAGRAPH_LIKE_TAG_PATTERN =
-            Pattern.compile("(?i)<\\s*(p|ul|ol|li|h1|h2|h3|h4|h5|h6|blockquote)\\b");
+    private static final String LAST_INDEX_KEY = "news-last-index";
+    private static final String MOBILE_NAV_KEY = "news-mobile-nav";
+    private static final String CARD_LINK_KEY = "news-card-link";
+    private static final String CARD_INDEX_KEY = "news-card-index";
+    private static final String CARD_VOTES_KEY = "news-card-votes";
+    private static final String CARD_VIEWS_KEY = "news-card-views";
+    private static final String CARD_ENTRY_KEY = "news-card-entry";
+    private static final String CARD_CONTENT_KEY = "news-card-content";
+    private static final String CARD_SOURCES_KEY = "news-card-sources";
 
     @Autowired
     private Filter filter;
@@ -49,108 +57,184 @@ public class NewsItemComponent {
     @Autowired
     private MongoController mongo;
 
+    @Autowired
+    private ContentRenderer contentRenderer;
+
+    @Autowired
+    private StoryClusterer storyClusterer;
+
     public VerticalLayout createNewsItem(List<NewsEntry> items) {
         // Start before the first item so the first "j" selects index 0.
         commonSessionComponents.setFocusKeyIndex(-1);
         var verticalLayout = new VerticalLayout();
         verticalLayout.addClassName("news-list");
         verticalLayout.setPadding(false);
-        var index = 0;
-        for (var item : items) {
-            if (item.isDeleted()) {
-                continue;
-            }
-            index++;
-            var row = buildNewsItem(index, item, verticalLayout);
-            if (row == null) continue;
-            verticalLayout.add(row);
+        ComponentUtil.setData(verticalLayout, LAST_INDEX_KEY, 0);
+        addNewsItems(verticalLayout, items);
 
+        registerNavigationShortcuts(() -> handleKeyEvents(verticalLayout, true),
+                () -> handleKeyEvents(verticalLayout, false));
+
+        if (commonComponents.isMobile()) {
+            var mobileNavBar = createMobileNavigation(() -> handleKeyEvents(verticalLayout, true),
+                    () -> handleKeyEvents(verticalLayout, false));
+            verticalLayout.add(mobileNavBar);
+            ComponentUtil.setData(verticalLayout, MOBILE_NAV_KEY, mobileNavBar);
         }
-        if (!commonSessionComponents.getRegistration().isEmpty()) {
-            commonSessionComponents.getRegistration().forEach(ShortcutRegistration::remove);
-            commonSessionComponents.getRegistration().clear();
-        }
 
-        commonSessionComponents.getRegistration().add(UI.getCurrent().addShortcutListener(
-                () -> handleKeyEvents(verticalLayout, true), Key.KEY_J));
+        return verticalLayout;
+    }
+
+    /**
+     * Creates a list that renders only the visible cards and fetches its entries lazily through the pager,
+     * so the server-side components stay the same no matter how far the list is scrolled.
+     */
+    public VerticalLayout createVirtualNewsList(KeysetPager pager) {
+        var newsList = new VirtualNewsList(pager, (row, layout) -> buildNewsItem(row.index(), row.entry(), layout));
 
-        commonSessionComponents.getRegistration().add(UI.getCurrent().addShortcutListener(
-                () -> handleKeyEvents(verticalLayout, false), Key.KEY_K));
+        registerNavigationShortcuts(() -> newsList.move(true), () -> newsList.move(false));
 
-        renderMobileNavigation(verticalLayout);
+        if (commonComponents.isMobile()) {
+            newsList.add(createMobileNavigation(() -> newsList.move(true), () -> newsList.move(false)));
+        }
 
-        return verticalLayout;
+        return newsList;
     }
 
-    private void renderMobileNavigation(VerticalLayout verticalLayout) {
-        if (commonComponents.isMobile()) {
-            HorizontalLayout mobileNavBar = new HorizontalLayout();
-            var nextBtn = new Button(new Icon(VaadinIcon.ARROW_DOWN));
-            nextBtn.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
-            nextBtn.addClickListener(event -> {
-                commonSessionComponents.setFocusCurrentIndex(0);
-                var sizeNewsItems = verticalLayout.getChildren()
-                        .filter(component -> component instanceof VerticalLayout)
-                        .count();
+    /**
+     * @return whether the list created by {@link #createNewsItem(List)} shows a card for the link
+     */
+    public boolean isShown(VerticalLayout verticalLayout, String link) {
+        return verticalLayout.getChildren()
+                .anyMatch(component -> link.equals(ComponentUtil.getData(component, CARD_LINK_KEY)));
+    }
 
-                if (commonSessionComponents.getFocusKeyIndex() == sizeNewsItems) {
-                    return;
-                }
-                commonSessionComponents.setFocusKeyIndex(commonSessionComponents.getFocusKeyIndex() + 1);
-
-                verticalLayout.getChildren().forEach(component -> {
-                    if (component instanceof VerticalLayout) {
-                        boolean isExpanded = component.getElement().getProperty("isExpanded", false);
-
-                        if (commonSessionComponents.getFocusCurrentIndex() == commonSessionComponents.getFocusKeyIndex()) {
-                            component.scrollIntoView();
-
-                            if (!isExpanded) {
-                                fireEvent(component, new ClickEvent<VerticalLayout>(component));
-                            }
-                        } else if (isExpanded) {
-                            fireEvent(component, new ClickEvent<VerticalLayout>(component));
-                        }
-                        commonSessionComponents.setFocusCurrentIndex(commonSessionComponents.getFocusCurrentIndex() + 1);
-                    }
-                });
-            });
-            var prevBtn = new Button(new Icon(VaadinIcon.ARROW_UP));
-            prevBtn.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
-            prevBtn.addClickListener(event -> {
-                commonSessionComponents.setFocusCurrentIndex(0);
-                var sizeNewsItems = verticalLayout.getChildren()
+    /**
+     * Applies the change of a single entry to a list created by {@link #createNewsItem(List)}: the counters of a
+     * shown card are updated in place, removed, deleted or duplicate entries are taken out and new entries are put on top
+     * if {@code prependNew} is set.
+     */
+    public void applyChange(VerticalLayout verticalLayout, MongoChangeStreamService.NewsChangeEvent event, boolean prependNew) {
+        if (ComponentUtil.getData(verticalLayout, LAST_INDEX_KEY) == null) {
+            return;
+        }
+
+        var card = verticalLayout.getChildren()
+                .filter(component -> event.link().equals(ComponentUtil.getData(component, CARD_LINK_KEY)))
+                .findFirst()
+                .orElse(null);
+        var entry = event.entry();
+
+        if (entry == null || entry.isDeleted() || entry.getDuplicateOf() != null) {
+            if (card != null) {
+                var position = (int) verticalLayout.getChildren()
                         .filter(component -> component instanceof VerticalLayout)
+                        .takeWhile(component -> component != card)
                         .count();
-
-                if (commonSessionComponents.getFocusKeyIndex() <= 0) {
-                    return;
+                verticalLayout.remove(card);
+                renumber(verticalLayout);
+                if (position < commonSessionComponents.getFocusKeyIndex()) {
+                    commonSessionComponents.setFocusKeyIndex(commonSessionComponents.getFocusKeyIndex() - 1);
                 }
-                commonSessionComponents.setFocusKeyIndex(commonSessionComponents.getFocusKeyIndex() - 1);
-
-                verticalLayout.getChildren().forEach(component -> {
-                    if (component instanceof VerticalLayout) {
-                        boolean isExpanded = component.getElement().getProperty("isExpanded", false);
-
-                        if (commonSessionComponents.getFocusCurrentIndex() == commonSessionComponents.getFocusKeyIndex()) {
-                            component.scrollIntoView();
-
-                            if (!isExpanded) {
-                                fireEvent(component, new ClickEvent<VerticalLayout>(component));
-                            }
-                        } else if (isExpanded) {
-                            fireEvent(component, new ClickEvent<VerticalLayout>(component));
-                        }
-                        commonSessionComponents.setFocusCurrentIndex(commonSessionComponents.getFocusCurrentIndex() + 1);
-                    }
-                });
-            });
+            }
+        } else if (card != null) {
+            ((Span) ComponentUtil.getData(card, CARD_VOTES_KEY)).setText(String.valueOf(entry.getVotes()));
+            ((Span) ComponentUtil.getData(card, CARD_VIEWS_KEY)).setText(String.valueOf(entry.getViews()));
+            updateSources((Span) ComponentUtil.getData(card, CARD_SOURCES_KEY), entry.getSources());
+            if (event.updatedFields().contains("renderedHtml") && entry.getRenderedHtml() != null) {
+                // A finished summary replaces the partial output, show it in expanded cards right away
+                var shownEntry = (NewsEntry) ComponentUtil.getData(card, CARD_ENTRY_KEY);
+                shownEntry.setRenderedHtml(entry.getRenderedHtml());
+                shownEntry.setPartialHtml(null);
+                if (card.getElement().getProperty("isExpanded", false)) {
+                    ((Html) ComponentUtil.getData(card, CARD_CONTENT_KEY)).setHtmlContent(createHtmlElement(entry.getRenderedHtml()));
+                }
+            }
+        } else if (prependNew) {
+            var newCard = buildNewsItem(1, entry, verticalLayout);
+            if (newCard != null) {
+                verticalLayout.addComponentAsFirst(newCard);
+                renumber(verticalLayout);
+                // Keep the focus on the card that had it
+                if (commonSessionComponents.getFocusKeyIndex() >= 0) {
+                    commonSessionComponents.setFocusKeyIndex(commonSessionComponents.getFocusKeyIndex() + 1);
+                }
+            }
+        }
+    }
 
-            mobileNavBar.add(nextBtn, prevBtn);
-            mobileNavBar.addClassName("mobile-nav");
+    private void updateSources(Span sources, int count) {
+        sources.setText(count + " sources");
+        sources.setVisible(count > 1);
+    }
+
+    private void renumber(VerticalLayout verticalLayout) {
+        var index = 0;
+        for (var component : verticalLayout.getChildren().toList()) {
+            var indexSpan = (Span) ComponentUtil.getData(component, CARD_INDEX_KEY);
+            if (indexSpan != null) {
+                indexSpan.setText(String.valueOf(++index));
+            }
+        }
+        ComponentUtil.setData(verticalLayout, LAST_INDEX_KEY, index);
+    }
+
+    private void registerNavigationShortcuts(Command next, Command previous) {
+        if (!commonSessionComponents.getRegistration().isEmpty()) {
+            commonSessionComponents.getRegistration().forEach(ShortcutRegistration::remove);
+            commonSessionComponents.getRegistration().clear();
+        }
+
+        commonSessionComponents.getRegistration().add(UI.getCurrent().addShortcutListener(next, Key.KEY_J));
+
+        commonSessionComponents.getRegistration().add(UI.getCurrent().addShortcutListener(previous, Key.KEY_K));
+    }
+
+    /**
+     * Adds the cards of the next batch to a list created by {@link #createNewsItem(List)}. Numbering continues
+     * where the list stopped, the keyboard focus and the j/k and mobile navigation stay as they are since they
+     * look up the cards of the list when used.
+     *
+     * @return {@code false} if the list no longer shows the paged entries (e.g. it was replaced by a site filter)
+     */
+    public boolean appendNewsItems(VerticalLayout verticalLayout, List<NewsEntry> items) {
+        if (ComponentUtil.getData(verticalLayout, LAST_INDEX_KEY) == null) {
+            return false;
+        }
+        addNewsItems(verticalLayout, items);
+        return true;
+    }
+
+    private void addNewsItems(VerticalLayout verticalLayout, List<NewsEntry> items) {
+        var index = (Integer) ComponentUtil.getData(verticalLayout, LAST_INDEX_KEY);
+        // Cards go above the mobile navigation bar, which stays the last child
+        var mobileNavBar = (HorizontalLayout) ComponentUtil.getData(verticalLayout, MOBILE_NAV_KEY);
+        var insertAt = mobileNavBar == null ? verticalLayout.getComponentCount() : verticalLayout.indexOf(mobileNavBar);
+        for (var item : items) {
+            if (item.isDeleted()) {
+                continue;
+            }
+            index++;
+            var row = buildNewsItem(index, item, verticalLayout);
+            if (row == null) continue;
+            verticalLayout.addComponentAtIndex(insertAt++, row);
 
-            verticalLayout.add(mobileNavBar);
         }
+        ComponentUtil.setData(verticalLayout, LAST_INDEX_KEY, index);
+    }
+
+    private HorizontalLayout createMobileNavigation(Command next, Command previous) {
+        HorizontalLayout mobileNavBar = new HorizontalLayout();
+        var nextBtn = new Button(new Icon(VaadinIcon.ARROW_DOWN));
+        nextBtn.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+        nextBtn.addClickListener(event -> next.execute());
+        var prevBtn = new Button(new Icon(VaadinIcon.ARROW_UP));
+        prevBtn.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+        prevBtn.addClickListener(event -> previous.execute());
+
+        mobileNavBar.add(nextBtn, prevBtn);
+        mobileNavBar.addClassName("mobile-nav");
+        return mobileNavBar;
     }
 
     public VerticalLayout buildNewsItem(int index, NewsEntry item, VerticalLayout sourceLayout) {
@@ -175,6 +259,9 @@ public class NewsItemComponent {
         avatarDiv.add(avatar);
         avatarDiv.addClickListener(e -> UI.getCurrent().access(() -> {
             sourceLayout.removeAll();
+            // The list now only holds the site filter, further pages must not be appended to it
+            ComponentUtil.setData(sourceLayout, LAST_INDEX_KEY, null);
+            ComponentUtil.setData(sourceLayout, MOBILE_NAV_KEY, null);
             List<NewsEntry> newsEntries = mongo.findAllFilterdBySite(item.getDomainWithProtocol());
             sourceLayout.add(createNewsItem(newsEntries));
         }));
@@ -207,6 +294,10 @@ public class NewsItemComponent {
         var viewSum = new Span(String.valueOf(item.getViews()));
         viewSum.getStyle().set("font-size", "small");
 
+        var sources = new Span();
+        sources.getStyle().set("font-size", "small");
+        updateSources(sources, item.getSources());
+
         var viewIcon = VaadinIcon.BAR_CHART.create();
         viewIcon.setSize("15px");
         viewIcon.setTooltipText("Views");
@@ -222,16 +313,17 @@ public class NewsItemComponent {
         delete.addClickListener((ComponentEventListener<ClickEvent<Icon>>) iconClickEvent -> {
             LOG.info("Delete: {}", item.getTitle());
             item.delete();
-            mongo.update(item);
+            mongo.markDeleted(item);
+            storyClusterer.storyDeleted(item);
             UI.getCurrent().getPage().reload();
         });
 
         commonComponents.checkIconStatus(vote, item.getLink());
 
         if (commonSessionComponents.isAdmin()) {
-            rowDateAndLinks.add(date, viewSum, viewIcon, voteSum, vote, delete);
+            rowDateAndLinks.add(date, sources, viewSum, viewIcon, voteSum, vote, delete);
         } else {
-            rowDateAndLinks.add(date, voteSum, vote);
+            rowDateAndLinks.add(date, sources, voteSum, vote);
         }
 
         VerticalLayout column = new VerticalLayout();
@@ -240,64 +332,81 @@ public class NewsItemComponent {
         column.setSpacing(false);
         column.setPadding(false);
 
+        var indexSpan = new Span(String.valueOf(index));
         if (commonComponents.isMobile()) {
-            row.add(new Span(String.valueOf(index)), column);
+            row.add(indexSpan, column);
         } else {
-            row.add(new Span(String.valueOf(index)), avatarDiv, column);
+            row.add(indexSpan, avatarDiv, column);
         }
         cardLayout.add(row);
 
+        // Lets realtime changes find the card and patch it in place
+        ComponentUtil.setData(cardLayout, CARD_LINK_KEY, item.getLink());
+        ComponentUtil.setData(cardLayout, CARD_INDEX_KEY, indexSpan);
+        ComponentUtil.setData(cardLayout, CARD_VOTES_KEY, voteSum);
+        ComponentUtil.setData(cardLayout, CARD_VIEWS_KEY, viewSum);
+        ComponentUtil.setData(cardLayout, CARD_ENTRY_KEY, item);
+        ComponentUtil.setData(cardLayout, CARD_SOURCES_KEY, sources);
+
         // Base styles for animation
         String transitionStyle = "max-height 0.5s ease-in-out";
         String collapsedHeight = "5em"; // Example for a few lines
         String expandedHeight = "1000px"; // Increased height for full content
 
-        // Store both content versions and apply styles
-        Html excerptContent = formatHtml(item, true);
-        excerptContent.getStyle().set("overflow", "hidden");
-        excerptContent.getStyle().set("transition", transitionStyle);
-        excerptContent.getStyle().set("box-sizing", "border-box");
-        excerptContent.getStyle().set("max-height", collapsedHeight); // Initial state: collapsed
-        excerptContent.addClassName("news-content");
-
-        Html fullContent = formatHtml(item, false);
-        fullContent.getStyle().set("overflow-y", "auto"); // Allow vertical scroll on fullContent
-        fullContent.getStyle().set("transition", transitionStyle);
-        fullContent.getStyle().set("box-sizing", "border-box");
-        fullContent.getStyle().set("max-height", "0px"); // Initial state: hidden collapsed
-        fullContent.addClassName("news-content");
+        // A single content element per card: it shows the excerpt and only receives the full
+        // rendered markup while the card is expanded
+        String excerptHtml = formatHtml(item, true);
+        Html content = new Html(excerptHtml);
+        content.getStyle().set("overflow", "hidden");
+        content.getStyle().set("transition", transitionStyle);
+        content.getStyle().set("box-sizing", "border-box");
+        content.getStyle().set("max-height", collapsedHeight); // Initial state: collapsed
+        content.addClassName("news-content");
+        ComponentUtil.setData(cardLayout, CARD_CONTENT_KEY, content);
+
+        // List entries that were not rendered yet have no excerpt, their content is only known after loading
+        boolean hasContent = !content.getInnerHtml().isBlank()
+                || (!item.isDetailsLoaded() && item.getExcerpt() == null);
 
         // Initial display & state
         cardLayout.getElement().setProperty("isExpanded", false);
-        if (item.getContent() != null && !item.getContent().isBlank()) {
-            cardLayout.add(excerptContent);
+        if (hasContent) {
+            cardLayout.add(content);
         }
 
         // "Read more..." / "Show less..." indicator
         Span expandIndicator = new Span("Read more...");
         expandIndicator.addClassName("news-expand");
         cardLayout.add(expandIndicator); // Add it to the layout
+        expandIndicator.setVisible(hasContent);
 
-        boolean isContentDifferent = !fullContent.getInnerHtml().equals(excerptContent.getInnerHtml());
-        expandIndicator.setVisible(isContentDifferent && item.getContent() != null && !item.getContent().isBlank());
-
-        // Click listener on card
+        // Click listener on card, keyboard and mobile navigation fire the same click event
         cardLayout.addClickListener(event -> {
             boolean isExpanded = cardLayout.getElement().getProperty("isExpanded", false);
-            if (item.getContent() != null && !item.getContent().isBlank() && isContentDifferent) {
-                if (!isExpanded) {
-                    excerptContent.getStyle().set("max-height", "0px"); // Collapse current
-                    fullContent.getStyle().set("max-height", expandedHeight); // Expand new
-                    cardLayout.replace(excerptContent, fullContent);
-                    cardLayout.getElement().setProperty("isExpanded", true);
-                    expandIndicator.setText("Show less...");
-                } else {
-                    fullContent.getStyle().set("max-height", "0px"); // Collapse current
-                    excerptContent.getStyle().set("max-height", collapsedHeight); // Expand new
-                    cardLayout.replace(fullContent, excerptContent);
-                    cardLayout.getElement().setProperty("isExpanded", false);
-                    expandIndicator.setText("Read more...");
+            if (!hasContent) {
+                return;
+            }
+
+            if (!isExpanded) {
+                // List entries carry only the precomputed excerpt, the details are loaded on first expansion
+                mongo.loadDetails(item);
+                String fullHtml = formatHtml(item, false);
+                if (fullHtml.equals(excerptHtml)) {
+                    expandIndicator.setVisible(false);
+                    return;
                 }
+                content.setHtmlContent(fullHtml);
+                content.getStyle().set("overflow-y", "auto"); // Allow vertical scroll on full content
+                content.getStyle().set("max-height", expandedHeight);
+                cardLayout.getElement().setProperty("isExpanded", true);
+                expandIndicator.setText("Show less...");
+            } else {
+                // Drop the full markup from the component tree again
+                content.setHtmlContent(excerptHtml);
+                content.getStyle().remove("overflow-y");
+                content.getStyle().set("max-height", collapsedHeight);
+                cardLayout.getElement().setProperty("isExpanded", false);
+                expandIndicator.setText("Read more...");
             }
         });
 
@@ -307,123 +416,36 @@ public class NewsItemComponent {
     private void handleVotes(NewsEntry item, Span voteSum, Icon vote) {
         if (vote.getColor() == null) {
             vote.setColor("green");
-            mongo.increaseVote(item);
-            item.setVotes(item.getVotes() + 1);
+            item.setVotes(mongo.increaseVote(item));
             commonComponents.writeLocalStorage(item.getLink(), "true");
         } else {
             vote.setColor(null);
-            mongo.decreaseVote(item);
-            item.setVotes(item.getVotes() - 1);
+            item.setVotes(mongo.decreaseVote(item));
             commonComponents.writeLocalStorage(item.getLink(), "false");
         }
         voteSum.setText(String.valueOf(item.getVotes()));
     }
 
-    private Html formatHtml(NewsEntry item, boolean excerpt) {
-        if (excerpt) {
-            var str = createExcerpt(item.getContent());
-            return createHtmlElement(str);
-        }
-
-        var summary = item.getSummary();
-        var source = (summary != null && !summary.isBlank()) ? summary : item.getContent();
-        var str = formatFullContent(source);
-        return createHtmlElement(str);
-    }
-
-    private String formatFullContent(String str) {
-        if (str == null || str.isBlank()) {
-            return "";
-        }
-
-        str = str.replaceAll("(?i)</?div[^>]*>", "").trim();
-
-        return paragraphizeText(str);
-    }
-
-    private String paragraphizeText(String html) {
-        String normalized = html
-                .replaceAll("(?i)<br\\s*/?>", "\n")
-                .replace("&nbsp;", " ")
-                .replaceAll("\\r\\n?", "\n");
-
-        String plainText = Jsoup.parse(normalized).wholeText().trim();
-        if (plainText.isBlank()) {
-            return "";
-        }
-
-        String[] initialParagraphs = plainText.split("\\n\\s*\\n+");
-        List<String> readableParagraphs = new ArrayList<>();
-
-        for (String paragraph : initialParagraphs) {
-            String compact = paragraph.replaceAll("\\s*\\n\\s*", " ").trim();
-            if (compact.isBlank()) {
-                continue;
-            }
-            readableParagraphs.addAll(splitLongParagraph(compact));
-        }
-
-        if (readableParagraphs.isEmpty()) {
-            return "";
-        }
-
-        StringBuilder htmlBuilder = new StringBuilder();
-        for (String paragraph : readableParagraphs) {
-            htmlBuilder.append("<p>")
-                    .append(Jsoup.clean(paragraph, Safelist.none()))
-                    .append("</p>");
-        }
-        return htmlBuilder.toString();
-    }
-
-    private List<String> splitLongParagraph(String paragraph) {
-        List<String> parts = new ArrayList<>();
-        if (paragraph.length() <= 320) {
-            parts.add(paragraph);
-            return parts;
-        }
-
-        String[] sentences = paragraph.split("(?<=[.!?])\\s+(?=[A-Z0-9\"'\\(])");
-        if (sentences.length <= 1) {
-            parts.add(paragraph);
-            return parts;
+    private String formatHtml(NewsEntry item, boolean excerpt) {
+        if (item.isDetailsLoaded() && item.getRenderedHtml() == null) {
+            // Not rendered at ingestion yet, the backfill job will catch up. List entries lack the content
+            // to render, they show their stored excerpts and are rendered once the details are loaded.
+            contentRenderer.render(item);
         }
 
-        StringBuilder currentPart = new StringBuilder();
-        int sentenceCount = 0;
-        for (String sentence : sentences) {
-            boolean exceedsLength = currentPart.length() > 0 && currentPart.length() + sentence.length() > 320;
-            boolean exceedsSentenceLimit = sentenceCount >= 3;
-            if (exceedsLength || exceedsSentenceLimit) {
-                parts.add(currentPart.toString().trim());
-                currentPart = new StringBuilder();
-                sentenceCount = 0;
-            }
-            currentPart.append(sentence).append(" ");
-            sentenceCount++;
-        }
-        if (currentPart.length() > 0) {
-            parts.add(currentPart.toString().trim());
-        }
-
-        return parts;
-    }
-
-    private String createExcerpt(String str) {
-        if (str == null || str.isBlank()) {
-            return "";
+        if (excerpt) {
+            return createHtmlElement(Objects.toString(commonComponents.isMobile() ? item.getExcerptShort() : item.getExcerpt(), ""));
         }
-        String plainText = Jsoup.parse(str).text().trim();
-        if (plainText.isBlank()) {
-            return "";
+        if ((item.getSummary() == null || item.getSummary().isBlank()) && item.getPartialHtml() != null) {
+            // The summary is still being generated, show what is there so far
+            return createHtmlElement(item.getPartialHtml());
         }
-        return plainText.substring(0, Math.min(plainText.length(), commonComponents.isMobile() ? 25 : 100)) + "...";
+        return createHtmlElement(Objects.toString(item.getRenderedHtml(), ""));
     }
 
-    private Html createHtmlElement(String str) {
+    private String createHtmlElement(String str) {
         // Always wrap in a single <div> to ensure only one top-level element
-        var html = new Html("<div>" + str + "</div>");
-        return html;
+        return "<div>" + str + "</div>";
     }
 
     private void handleKeyEvents(VerticalLayout verticalLayout, boolean goDown) {
@@ -12,11 +12,14 @@ import com.vaadin.flow.component.textfield.TextField;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class SearchComponent {
 
+    private static final int SEARCH_PAGE_SIZE = 20;
+
     @Autowired
     private MongoController mongoController;
 
@@ -73,12 +76,32 @@ public class SearchComponent {
     private void searchEventHandler(VerticalLayout newsItems, TextField textField, Button clearButton) {
         var searchValue = textField.getValue().strip();
         if (searchValue.length() >= 3) {
-            List<NewsEntry> newsEntries = mongoController.searchEntries(searchValue, commonSessionComponents.getSelectedLanguages());
+            List<NewsEntry> results = new ArrayList<>();
+            var moreButton = new Button("More results");
+            moreButton.addThemeVariants(ButtonVariant.LUMO_TERTIARY);
+            moreButton.addClickListener(event -> loadSearchPage(newsItems, searchValue, results, moreButton));
+
             newsItems.getUI().get().access(() -> {
-                newsItems.removeAll();
-                newsItems.add(newsItemComponent.createNewsItem(newsEntries));
+                loadSearchPage(newsItems, searchValue, results, moreButton);
                 clearButton.setVisible(true);
             });
         }
     }
+
+    private void loadSearchPage(VerticalLayout newsItems, String searchValue, List<NewsEntry> results, Button moreButton) {
+        // Ask for one more than shown to know whether another page exists
+        List<NewsEntry> page = mongoController.searchEntries(searchValue,
+                commonSessionComponents.getSelectedLanguages(), results.size(), SEARCH_PAGE_SIZE + 1);
+        boolean hasMore = page.size() > SEARCH_PAGE_SIZE;
+        List<NewsEntry> batch = hasMore ? page.subList(0, SEARCH_PAGE_SIZE) : page;
+
+        if (results.isEmpty()) {
+            newsItems.removeAll();
+            newsItems.add(newsItemComponent.createNewsItem(batch), moreButton);
+        } else if (!newsItemComponent.appendNewsItems((VerticalLayout) newsItems.getComponentAt(0), batch)) {
+            hasMore = false;
+        }
+        results.addAll(batch);
+        moreButton.setVisible(hasMore);
+    }
 }
@@ -0,0 +1,109 @@
+package ch.climbd.newsfeed.views.components;
+
+import com.vaadin.flow.component.ClickEvent;
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.virtuallist.VirtualList;
+import com.vaadin.flow.data.renderer.ComponentRenderer;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static com.vaadin.flow.component.ComponentUtil.fireEvent;
+
+/**
+ * News list that only keeps the cards of the visible window as server-side components. Rows are
+ * fetched lazily through a {@link KeysetPager}; the focused and expanded card is tracked by its index,
+ * so it stays expanded when it is scrolled out of view and rendered again.
+ */
+class VirtualNewsList extends VerticalLayout {
+
+    private static final int MAX_REMEMBERED_ROWS = 256;
+
+    private final VirtualList<KeysetPager.Row> list = new VirtualList<>();
+    private final KeysetPager pager;
+    private final BiFunction<KeysetPager.Row, VerticalLayout, VerticalLayout> cardBuilder;
+    // Rows rendered most recently, to refresh them in place when the expanded card changes
+    private final Map<Integer, KeysetPager.Row> renderedRows = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, KeysetPager.Row> eldest) {
+            return size() > MAX_REMEMBERED_ROWS;
+        }
+    };
+    private int focusIndex = 0;
+    private int expandedIndex = 0;
+
+    VirtualNewsList(KeysetPager pager, BiFunction<KeysetPager.Row, VerticalLayout, VerticalLayout> cardBuilder) {
+        this.pager = pager;
+        this.cardBuilder = cardBuilder;
+        addClassName("news-list");
+        setPadding(false);
+
+        list.addClassName("news-virtual-list");
+        list.setWidthFull();
+        list.setRenderer(new ComponentRenderer<>(this::renderRow));
+        list.setItems(query -> pager.fetch(query.getOffset(), query.getLimit()));
+        add(list);
+    }
+
+    /**
+     * Moves the focus to the next or previous card, expands it and collapses the one expanded before.
+     */
+    void move(boolean goDown) {
+        int target = focusIndex + (goDown ? 1 : -1);
+        if (target < 1) {
+            return;
+        }
+
+        var row = renderedRows.get(target);
+        if (row == null) {
+            row = pager.fetch(target - 1, 1).findFirst().orElse(null);
+            if (row == null) {
+                return;
+            }
+        }
+
+        int previous = expandedIndex;
+        focusIndex = target;
+        expandedIndex = target;
+        list.scrollToIndex(target - 1);
+        refresh(previous);
+        refresh(target);
+    }
+
+    private Component renderRow(KeysetPager.Row row) {
+        renderedRows.put(row.index(), row);
+        var card = row.entry().isDeleted() ? null : cardBuilder.apply(row, this);
+        if (card == null) {
+            return new Div();
+        }
+
+        if (row.index() == expandedIndex) {
+            fireEvent(card, new ClickEvent<VerticalLayout>(card));
+        }
+        card.addClickListener(event -> cardToggled(row, card));
+        return card;
+    }
+
+    private void cardToggled(KeysetPager.Row row, VerticalLayout card) {
+        if (card.getElement().getProperty("isExpanded", false)) {
+            int previous = expandedIndex;
+            focusIndex = row.index();
+            expandedIndex = row.index();
+            if (previous != row.index()) {
+                refresh(previous);
+            }
+        } else if (expandedIndex == row.index()) {
+            expandedIndex = 0;
+        }
+    }
+
+    private void refresh(int index) {
+        var row = renderedRows.get(index);
+        if (row != null) {
+            list.getDataProvider().refreshItem(row);
+        }
+    }
+}